@@ -0,0 +1,54 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.models.LaravelLogParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential parse of a 16 MB history. LAZY is the parse as the watcher runs it,
+ * counting and indexing only need the header and the raw continuation lines.
+ * EAGER also asks every entry for its additionalData, which takes one split of
+ * the continuation lines and the key/value scan, the work every entry used to
+ * get while it was parsed.
+ * The difference is the share of parse time the lazy getters save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class DetailsExtractionBenchmark {
+
+    public enum Extraction { LAZY, EAGER }
+
+    @Param({"LAZY", "EAGER"})
+    public Extraction extraction;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = LogFixtures.generate(16L * 1024 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        LaravelLogParser.parseLogFile(file.toString(), entry -> {
+            if (extraction == Extraction.EAGER) {
+                blackhole.consume(entry.getAdditionalData());
+            }
+            blackhole.consume(entry);
+        });
+    }
+}
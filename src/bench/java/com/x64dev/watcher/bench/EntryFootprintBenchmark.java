@@ -0,0 +1,67 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.models.LaravelLogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap kept by the entries of a generated 32 MB log, with the compact LaravelLog
+ * against the layout it replaced. Each operation parses the whole file and keeps
+ * every entry. The secondary results are the retained bytes per entry and in
+ * total, measured as used heap after a full GC before and after, so the time
+ * includes two collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EntryFootprintBenchmark {
+
+    public enum Layout { COMPACT, LEGACY }
+
+    @Param({"COMPACT", "LEGACY"})
+    public Layout layout;
+
+    private Path file;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerEntry;
+        public long retainedMb;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = LogFixtures.generate(32L * 1024 * 1024);
+    }
+
+    @Benchmark
+    public int retainAll(Footprint footprint) {
+        long before = usedAfterGc();
+        List<Object> kept = new ArrayList<>();
+        LaravelLogParser.parseLogFile(file.toString(),
+                entry -> kept.add(layout == Layout.COMPACT ? entry : LegacyLaravelLog.of(entry)));
+        long retained = usedAfterGc() - before;
+        Reference.reachabilityFence(kept);
+        footprint.bytesPerEntry = retained / kept.size();
+        footprint.retainedMb = retained / (1024 * 1024);
+        return kept.size();
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
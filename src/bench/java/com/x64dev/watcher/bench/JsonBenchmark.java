@@ -0,0 +1,63 @@
+package com.x64dev.watcher.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.config.JacksonMapperConfig;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogParser;
+import com.x64dev.watcher.models.LaravelStateStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization with the application's ObjectMapper: a one-line entry,
+ * an entry with context and stack trace, and a stats snapshot of 100 entries as
+ * sent to every new subscriber.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final ObjectMapper mapper = new JacksonMapperConfig().objectMapper();
+    private LaravelLog oneLine;
+    private LaravelLog withStackTrace;
+    private LaravelStateStats stats;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = LogFixtures.generate(64 * 1024);
+        List<LaravelLog> entries = LaravelLogParser.parseLogFile(file.toString());
+        Files.deleteIfExists(file);
+        // LogFixtures writes a plain INFO entry first and a stack trace every tenth, starting at the eighth
+        oneLine = entries.get(0);
+        withStackTrace = entries.get(7);
+
+        stats = new LaravelStateStats();
+        stats.setTotalCount(entries.size());
+        stats.setLogs(entries.subList(entries.size() - 100, entries.size()));
+    }
+
+    @Benchmark
+    public String oneLineEntry() throws JsonProcessingException {
+        return mapper.writeValueAsString(oneLine);
+    }
+
+    @Benchmark
+    public String stackTraceEntry() throws JsonProcessingException {
+        return mapper.writeValueAsString(withStackTrace);
+    }
+
+    @Benchmark
+    public byte[] statsSnapshot() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(stats);
+    }
+}
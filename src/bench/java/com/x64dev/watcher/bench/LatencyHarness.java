@@ -0,0 +1,165 @@
+package com.x64dev.watcher.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.x64dev.watcher.config.WatcherExecutors;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import com.x64dev.watcher.service.LaravelService;
+import com.x64dev.watcher.service.LaravelWatchEngine;
+import com.x64dev.watcher.service.WatcherService;
+import com.x64dev.watcher.socks.laravel.LaravelSockHandler;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Not a JMH benchmark: appends entries to a site's laravel.log at a fixed rate
+ * with tracing on and one socket subscribed, then prints the write-to-client
+ * latency it measured itself next to the traced stages the watcher published,
+ * split by whether inotify or the poller noticed the change.
+ *
+ * ./mvnw -P bench test-compile exec:exec -Dbench.main=com.x64dev.watcher.bench.LatencyHarness
+ *         -Dbench.args="[entries per second] [seconds] [single|batch]"
+ */
+public class LatencyHarness {
+
+    private static final String SITE = "latency";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        WatcherProperties.DispatchMode mode = args.length > 2
+                ? WatcherProperties.DispatchMode.valueOf(args[2].toUpperCase()) : WatcherProperties.DispatchMode.SINGLE;
+
+        WatcherProperties properties = new WatcherProperties();
+        properties.setTracing(true);
+        properties.setDispatchMode(mode);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WatcherMetrics metrics = new WatcherMetrics(registry);
+        WatcherExecutors executors = new WatcherExecutors();
+        ReflectionTestUtils.setField(executors, "properties", properties);
+        LaravelWatchEngine engine = new LaravelWatchEngine();
+        ReflectionTestUtils.setField(engine, "properties", properties);
+        ReflectionTestUtils.setField(engine, "executors", executors);
+        ReflectionTestUtils.invokeMethod(engine, "start");
+        LaravelService service = new LaravelService();
+        ReflectionTestUtils.setField(service, "properties", properties);
+        ReflectionTestUtils.setField(service, "watchEngine", engine);
+        ReflectionTestUtils.setField(service, "metrics", metrics);
+        LaravelSockHandler handler = new LaravelSockHandler();
+        ReflectionTestUtils.setField(handler, "laravelService", service);
+        ReflectionTestUtils.setField(handler, "watcherService", new WatcherService());
+        ReflectionTestUtils.setField(handler, "properties", properties);
+        ReflectionTestUtils.setField(handler, "executors", executors);
+        ReflectionTestUtils.setField(handler, "metrics", metrics);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ReflectionTestUtils.setField(handler, "mapper", mapper);
+
+        Path log = Paths.get(System.getenv("SITES_BASE_URI"), SITE, "laravel.log");
+        Files.createDirectories(log.getParent());
+        Files.writeString(log, "");
+        ReflectionTestUtils.invokeMethod(handler, "init");
+
+        int total = rate * seconds;
+        long[] writtenMicros = new long[total];
+        AtomicLongArray receivedMicros = new AtomicLongArray(total);
+        Map<String, AtomicLong> sources = new ConcurrentHashMap<>();
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("harness");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            long now = LaravelReadTrace.nowMicros();
+            JsonNode frame = mapper.readTree(((TextMessage) invocation.getArgument(0)).getPayload());
+            if (!"update".equals(frame.path("type").asText())) {
+                return null;
+            }
+            JsonNode data = frame.get("data");
+            for (JsonNode entry : data.isArray() ? data : mapper.createArrayNode().add(data)) {
+                String message = entry.get("message").asText();
+                receivedMicros.set(Integer.parseInt(message.substring(message.lastIndexOf(' ') + 1)), now);
+                sources.computeIfAbsent(frame.path("trace").path("source").asText("untraced"),
+                        source -> new AtomicLong()).incrementAndGet();
+            }
+            return null;
+        }).when(session).sendMessage(any());
+        handler.afterConnectionEstablished(session);
+        handler.handleMessage(session, new TextMessage("{\"site\":\"" + SITE + "\"}"));
+
+        // One entry per tick, each its own write like a PHP worker's
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long next = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            next += interval;
+            String line = "[" + LocalDateTime.now().format(DATE_FORMATTER) + "] production.INFO: harness entry " + i + "\n";
+            writtenMicros[i] = LaravelReadTrace.nowMicros();
+            Files.writeString(log, line, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+        // Room for the batch delay, the last entry's grace for continuation lines and a fallback poll
+        Thread.sleep(properties.getBatchDelayMs() + properties.getOpenEntryGraceMs()
+                + properties.getFallbackPollIntervalMs() + 500);
+
+        long[] latencies = new long[total];
+        int received = 0;
+        for (int i = 0; i < total; i++) {
+            if (receivedMicros.get(i) != 0) {
+                latencies[received++] = receivedMicros.get(i) - writtenMicros[i];
+            }
+        }
+        latencies = Arrays.copyOf(latencies, received);
+        Arrays.sort(latencies);
+        System.out.printf("%d entries/s for %ds, %s dispatch: %d of %d received, by %s%n",
+                rate, seconds, mode, received, total, new TreeMap<>(sources));
+        if (received > 0) {
+            System.out.printf("measured write to client: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(latencies, 0.5), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                    latencies[received - 1] / 1000.0);
+        }
+        for (Timer timer : registry.find("watcher.trace.latency").timers()) {
+            StringBuilder line = new StringBuilder(String.format("traced %-7s %-6s n=%-6d",
+                    timer.getId().getTag("source"), timer.getId().getTag("stage"), timer.count()));
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                line.append(String.format(" p%.0f %.2f ms", value.percentile() * 100, value.value(TimeUnit.MILLISECONDS)));
+            }
+            System.out.println(line);
+        }
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        ReflectionTestUtils.invokeMethod(service, "stopWatchers");
+        ReflectionTestUtils.invokeMethod(handler, "shutdown");
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)))] / 1000.0;
+    }
+}
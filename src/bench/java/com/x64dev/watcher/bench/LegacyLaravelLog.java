@@ -0,0 +1,38 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.models.LaravelLog;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LaravelLog as it was before the compact layout: a LocalDateTime, separate strings
+ * and an additionalData map for every entry. Only here to compare footprints.
+ */
+final class LegacyLaravelLog {
+    private LocalDateTime timestamp;
+    private String level;
+    private String message;
+    private String context;
+    private String stackTrace;
+    private Map<String, String> additionalData;
+    private long offset;
+
+    private LegacyLaravelLog() {
+        this.additionalData = new HashMap<>();
+    }
+
+    // Same values, held the old way
+    static LegacyLaravelLog of(LaravelLog entry) {
+        LegacyLaravelLog legacy = new LegacyLaravelLog();
+        legacy.timestamp = entry.getTimestamp();
+        legacy.level = entry.getLevel();
+        legacy.message = entry.getMessage();
+        legacy.context = entry.getContext();
+        legacy.stackTrace = entry.getStackTrace();
+        legacy.additionalData.putAll(entry.getAdditionalData());
+        legacy.offset = entry.getOffset();
+        return legacy;
+    }
+}
@@ -0,0 +1,68 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelStateStats;
+import com.x64dev.watcher.service.LaravelService;
+import com.x64dev.watcher.service.LaravelWatchEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * LaravelService.loadStats on a site whose 32 MB history is already loaded,
+ * which is what every new socket subscription and stats request costs: the
+ * counters and a copy of the newest snapshot-size entries.
+ *
+ * Needs SITES_BASE_URI, which the bench profile sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadStatsBenchmark {
+
+    private static final String SITE = "load-stats";
+
+    @Param({"100", "500"})
+    public int snapshotSize;
+
+    private LaravelService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path log = Paths.get(System.getenv("SITES_BASE_URI"), SITE, "laravel.log");
+        Files.createDirectories(log.getParent());
+        Files.move(LogFixtures.generate(32L * 1024 * 1024), log, StandardCopyOption.REPLACE_EXISTING);
+
+        WatcherProperties properties = new WatcherProperties();
+        properties.setSnapshotSize(snapshotSize);
+        service = new LaravelService();
+        ReflectionTestUtils.setField(service, "properties", properties);
+        ReflectionTestUtils.setField(service, "watchEngine", mock(LaravelWatchEngine.class));
+        ReflectionTestUtils.setField(service, "metrics", new WatcherMetrics(new SimpleMeterRegistry()));
+        // The first call loads the history
+        service.loadStats(SITE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(service, "stopWatchers");
+    }
+
+    @Benchmark
+    public LaravelStateStats loadStats() {
+        return service.loadStats(SITE);
+    }
+}
@@ -0,0 +1,60 @@
+package com.x64dev.watcher.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Generated laravel.log content shaped like the bundled sample: mostly one-line
+ * INFO entries, some JSON dumps and the odd exception with a stack trace.
+ */
+final class LogFixtures {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private LogFixtures() {
+    }
+
+    static Path generate(long targetBytes) throws IOException {
+        Path file = Files.createTempFile("laravel-bench", ".log");
+        file.toFile().deleteOnExit();
+        LocalDateTime time = LocalDateTime.of(2025, 7, 3, 12, 0, 0);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            long written = 0;
+            int i = 0;
+            while (written < targetBytes) {
+                String entry = entry(time, i++);
+                writer.write(entry);
+                written += entry.getBytes(StandardCharsets.UTF_8).length;
+                if (i % 7 == 0) {
+                    time = time.plusSeconds(1);
+                }
+            }
+        }
+        return file;
+    }
+
+    static String entry(LocalDateTime time, int i) {
+        String header = "[" + time.format(DATE_FORMATTER) + "] production.";
+        return switch (i % 10) {
+            case 3 -> header + "INFO: Stripe\\PaymentIntent JSON: {\n"
+                    + "    \"id\": \"pi_" + i + "\",\n"
+                    + "    \"amount\": 500,\n"
+                    + "    \"currency\": \"usd\",\n"
+                    + "    \"description\": \"Billet für Zürich – ünïcødé\",\n"
+                    + "    \"status\": \"succeeded\"\n"
+                    + "}\n";
+            case 7 -> header + "ERROR: Call to undefined method App\\Models\\Ticket::owner() {\"userId\":" + i + "}\n"
+                    + "[stacktrace]\n"
+                    + "#0 /var/www/app/Http/Controllers/TicketController.php(42): App\\Models\\Ticket->owner()\n"
+                    + "#1 /var/www/vendor/laravel/framework/src/Illuminate/Routing/Controller.php(54): show()\n"
+                    + "#2 {main}\n";
+            case 9 -> header + "WARNING: Slow query took 1200ms\n";
+            default -> header + "INFO: payment_intent.succeeded " + i + "\n";
+        };
+    }
+}
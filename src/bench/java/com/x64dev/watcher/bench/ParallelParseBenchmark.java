@@ -0,0 +1,49 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.models.LaravelLogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cold parse of a 64 MB history with 1 to N fork/join threads. parallelism=1
+ * is the sequential streaming parse. Extend the list with -p parallelism=...
+ * to match the machine's cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelParseBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"67108864"})
+    public long fileBytes;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = LogFixtures.generate(fileBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long parse() {
+        LongAdder entries = new LongAdder();
+        LaravelLogParser.parseLogFileParallel(file.toString(), parallelism, entry -> entries.increment());
+        return entries.sum();
+    }
+}
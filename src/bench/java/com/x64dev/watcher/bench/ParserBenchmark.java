@@ -0,0 +1,51 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.models.LaravelLogParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full sequential parse with LaravelLogParser.parseLogFile, of a generated 8 MB
+ * log and of the bundled sample, or of a real one passed with
+ * -p logFile=/path/to/laravel.log. Run with -prof gc for the allocation rate per
+ * operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    // Empty for a generated log, the bundled sample is relative to the project directory
+    @Param({"", "src/main/java/com/x64dev/watcher/files/laravel.log"})
+    public String logFile;
+
+    private Path file;
+    private boolean generated;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        generated = logFile.isEmpty();
+        file = generated ? LogFixtures.generate(8L * 1024 * 1024) : Paths.get(logFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (generated) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public long parseLogFile(Blackhole blackhole) {
+        return LaravelLogParser.parseLogFile(file.toString(), blackhole::consume);
+    }
+}
@@ -0,0 +1,185 @@
+package com.x64dev.watcher.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.x64dev.watcher.config.WatcherExecutors;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.service.LaravelService;
+import com.x64dev.watcher.service.LaravelWatchEngine;
+import com.x64dev.watcher.service.WatcherService;
+import com.x64dev.watcher.socks.laravel.LaravelSockHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 500 sessions spread over 100 sites, every site appends one entry per operation
+ * and the operation ends when every session has been sent it. Sends sleep for a
+ * millisecond like a slow network write. Reports the time per round and, as
+ * secondary results, the live thread count and resident memory of the fork,
+ * for the platform pools against virtual threads.
+ *
+ * Needs SITES_BASE_URI and DEFAULT_SITE, which the bench profile sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SessionFootprintBenchmark {
+
+    private static final int SITES = 100;
+    private static final int SESSIONS = 500;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public WatcherProperties.ExecutionMode mode;
+
+    private LaravelWatchEngine engine;
+    private LaravelService service;
+    private LaravelSockHandler handler;
+    private final List<WebSocketSession> sessions = new ArrayList<>();
+    private final List<Path> logs = new ArrayList<>();
+    private final AtomicLong delivered = new AtomicLong();
+    private long expected;
+    private int round;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long liveThreads;
+        public long residentMb;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        WatcherProperties properties = new WatcherProperties();
+        properties.setExecutionMode(mode);
+        properties.setBatchDelayMs(5);
+        WatcherMetrics metrics = new WatcherMetrics(new SimpleMeterRegistry());
+        WatcherExecutors executors = new WatcherExecutors();
+        ReflectionTestUtils.setField(executors, "properties", properties);
+
+        engine = new LaravelWatchEngine();
+        ReflectionTestUtils.setField(engine, "properties", properties);
+        ReflectionTestUtils.setField(engine, "executors", executors);
+        ReflectionTestUtils.invokeMethod(engine, "start");
+
+        service = new LaravelService();
+        ReflectionTestUtils.setField(service, "properties", properties);
+        ReflectionTestUtils.setField(service, "watchEngine", engine);
+        ReflectionTestUtils.setField(service, "metrics", metrics);
+
+        handler = new LaravelSockHandler();
+        ReflectionTestUtils.setField(handler, "laravelService", service);
+        ReflectionTestUtils.setField(handler, "watcherService", new WatcherService());
+        ReflectionTestUtils.setField(handler, "properties", properties);
+        ReflectionTestUtils.setField(handler, "executors", executors);
+        ReflectionTestUtils.setField(handler, "metrics", metrics);
+        ReflectionTestUtils.setField(handler, "mapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+
+        Path base = Paths.get(System.getenv("SITES_BASE_URI"));
+        for (int i = 0; i < SITES; i++) {
+            Path log = base.resolve("site-" + i).resolve("laravel.log");
+            Files.createDirectories(log.getParent());
+            Files.writeString(log, "");
+            logs.add(log);
+        }
+        ReflectionTestUtils.invokeMethod(handler, "init");
+
+        for (int i = 0; i < SESSIONS; i++) {
+            WebSocketSession session = session("s" + i);
+            sessions.add(session);
+            handler.afterConnectionEstablished(session);
+            handler.handleMessage(session, new TextMessage("{\"site\":\"site-" + (i % SITES) + "\"}"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (WebSocketSession session : sessions) {
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+        ReflectionTestUtils.invokeMethod(service, "stopWatchers");
+        ReflectionTestUtils.invokeMethod(handler, "shutdown");
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+    }
+
+    @Benchmark
+    public long appendAndDeliver(Footprint footprint) throws IOException {
+        String entry = LogFixtures.entry(LocalDateTime.of(2025, 7, 3, 12, 0, 0), round++);
+        for (Path log : logs) {
+            Files.writeString(log, entry, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+        expected += SESSIONS;
+        while (delivered.get() < expected) {
+            LockSupport.parkNanos(100_000);
+        }
+        footprint.liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        footprint.residentMb = residentMb();
+        return delivered.get();
+    }
+
+    // Count entries as they go out, after a pause like a slow client
+    private WebSocketSession session(String id) throws IOException {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            String payload = ((TextMessage) invocation.getArgument(0)).getPayload();
+            Thread.sleep(1);
+            if (payload.startsWith("{\"type\":\"update\"")) {
+                delivered.addAndGet(payload.contains("\"mode\":\"multiple\"") ? countEntries(payload) : 1);
+            }
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    // Every entry in a multiple frame carries exactly one "level" field
+    private static int countEntries(String payload) {
+        int count = 0;
+        for (int i = payload.indexOf("\"level\""); i >= 0; i = payload.indexOf("\"level\"", i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    // VmRSS covers thread stacks as well as the heap
+    private static long residentMb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) / 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux, fall through to the heap
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+    }
+}
@@ -0,0 +1,83 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.service.LaravelLogWatcher;
+import com.x64dev.watcher.service.LaravelWatchEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A watcher reading a burst of appended entries the way the engine's tail
+ * threads do: into the stats, the buffer and the search index. The append
+ * itself happens before each operation. Every iteration starts a fresh site so
+ * the file doesn't grow without bound.
+ *
+ * Needs SITES_BASE_URI, which the bench profile sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TailBurstBenchmark {
+
+    private static final String SITE = "tail-burst";
+
+    @Param({"1", "100", "1000"})
+    public int burstEntries;
+
+    private LaravelLogWatcher watcher;
+    private Path log;
+    private byte[] burst;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder text = new StringBuilder();
+        LocalDateTime time = LocalDateTime.of(2025, 7, 3, 12, 0, 0);
+        for (int i = 0; i < burstEntries; i++) {
+            text.append(LogFixtures.entry(time, i));
+        }
+        burst = text.toString().getBytes(StandardCharsets.UTF_8);
+        log = Paths.get(System.getenv("SITES_BASE_URI"), SITE, "laravel.log");
+    }
+
+    @Setup(Level.Iteration)
+    public void startSite() throws IOException {
+        Files.createDirectories(log.getParent());
+        Files.write(log, new byte[0]);
+        // Reads are driven by the benchmark, not by file events
+        watcher = new LaravelLogWatcher(SITE, new WatcherProperties(), mock(LaravelWatchEngine.class),
+                new WatcherMetrics(new SimpleMeterRegistry()));
+        watcher.startWatching();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopSite() {
+        watcher.stopWatching();
+    }
+
+    @Setup(Level.Invocation)
+    public void append() throws IOException {
+        Files.write(log, burst, StandardOpenOption.APPEND);
+    }
+
+    @Benchmark
+    public long readBurst() {
+        ReflectionTestUtils.invokeMethod(watcher, "runScheduledRead");
+        return watcher.getCurrentFilePosition();
+    }
+}
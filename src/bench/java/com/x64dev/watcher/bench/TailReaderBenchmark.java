@@ -0,0 +1,69 @@
+package com.x64dev.watcher.bench;
+
+import com.x64dev.watcher.models.LogLineReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a burst of appended bytes: the old RandomAccessFile.readLine path
+ * against LogLineReader on a channel that stays open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TailReaderBenchmark {
+
+    @Param({"1048576", "8388608"})
+    public long burstBytes;
+
+    private Path file;
+    private FileChannel channel;
+    private LogLineReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = LogFixtures.generate(burstBytes);
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        reader = new LogLineReader(channel, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int randomAccessFileReadLine() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(0);
+            StringBuilder content = new StringBuilder();
+            String line;
+            while ((line = raf.readLine()) != null) {
+                content.append(line).append("\n");
+            }
+            return content.length();
+        }
+    }
+
+    @Benchmark
+    public int tailReader() throws IOException {
+        reader.seek(0);
+        StringBuilder content = new StringBuilder();
+        String line;
+        while ((line = reader.readLine(false)) != null) {
+            content.append(line).append("\n");
+        }
+        return content.length();
+    }
+}
@@ -0,0 +1,118 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.config.JacksonMapperConfig;
+import com.x64dev.watcher.models.LaravelLog;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A "multiple" frame of 100 live entries sent to a number of sessions, for
+ * every encoding with and without deflate. Payloads are new each time, so the
+ * time per entry includes encoding and compressing it once, plus stitching it
+ * into each session's frame. The wire bytes per entry are printed at the end
+ * of each trial, they don't change between runs.
+ * A third of the entries are multi-KB Stripe JSON dumps, the rest one-liners
+ * and stack traces.
+ *
+ * Lives in the socks package because the wire classes are package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireEncodingBenchmark {
+
+    private static final int ENTRIES = 100;
+
+    @Param({"json", "json+deflate", "smile", "smile+deflate", "cbor", "cbor+deflate"})
+    public String format;
+
+    @Param({"1", "10"})
+    public int sessions;
+
+    private final ObjectMapper mapper = new JacksonMapperConfig().objectMapper();
+    private final List<LaravelLog> entries = new ArrayList<>();
+    private LaravelWireFormat wireFormat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = format.split("\\+");
+        wireFormat = LaravelWireFormat.of(parts.length > 1
+                ? Map.of("encoding", parts[0], "compress", parts[1]) : Map.of("encoding", parts[0]));
+        for (int i = 0; i < ENTRIES; i++) {
+            entries.add(entry(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void printWireSize() throws IOException {
+        System.out.printf("%n%s: %d wire bytes per entry%n", format, multipleFrame().getPayloadLength() / ENTRIES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public WebSocketMessage<?> multipleFrame() throws IOException {
+        List<LaravelLogPayload> payloads = new ArrayList<>(ENTRIES);
+        for (LaravelLog entry : entries) {
+            payloads.add(new LaravelLogPayload(entry, mapper));
+        }
+        WebSocketMessage<?> message = null;
+        for (int i = 0; i < sessions; i++) {
+            message = wireFormat.update("multiple", payloads, null, 0);
+        }
+        return message;
+    }
+
+    private static LaravelLog entry(int i) {
+        LaravelLog entry = new LaravelLog();
+        entry.setTimestamp(LocalDateTime.of(2025, 7, 3, 12, 0, 0).plusSeconds(i));
+        entry.setOffset(i * 4096L);
+        switch (i % 3) {
+            case 0 -> {
+                entry.setLevel("INFO");
+                entry.setMessage("Stripe\\PaymentIntent JSON:");
+                entry.setContext(stripeDump(i));
+            }
+            case 1 -> {
+                entry.setLevel("ERROR");
+                entry.setMessage("Call to undefined method App\\Models\\Ticket::owner()");
+                entry.setContext("{\"userId\":" + i + "}");
+                entry.setStackTrace("#0 /var/www/app/Http/Controllers/TicketController.php(42): App\\Models\\Ticket->owner()\n"
+                        + "#1 /var/www/vendor/laravel/framework/src/Illuminate/Routing/Controller.php(54): show()\n"
+                        + "#2 {main}");
+            }
+            default -> {
+                entry.setLevel("INFO");
+                entry.setMessage("payment_intent.succeeded " + i);
+            }
+        }
+        return entry;
+    }
+
+    // Pretty-printed like Laravel logs it, repetitive the way real API objects are
+    private static String stripeDump(int i) {
+        StringBuilder dump = new StringBuilder("{\n    \"id\": \"pi_" + i + "\",\n    \"object\": \"payment_intent\",\n");
+        dump.append("    \"amount\": ").append(500 + i).append(",\n    \"currency\": \"usd\",\n");
+        dump.append("    \"charges\": {\n        \"object\": \"list\",\n        \"data\": [\n");
+        for (int charge = 0; charge < 8; charge++) {
+            dump.append("            {\n                \"id\": \"ch_").append(i).append('_').append(charge).append("\",\n")
+                    .append("                \"object\": \"charge\",\n")
+                    .append("                \"amount\": ").append(500 + i).append(",\n")
+                    .append("                \"billing_details\": {\"address\": {\"city\": \"Zürich\", \"country\": \"CH\"}},\n")
+                    .append("                \"outcome\": {\"network_status\": \"approved_by_network\", \"risk_level\": \"normal\"},\n")
+                    .append("                \"status\": \"succeeded\"\n            }")
+                    .append(charge < 7 ? ",\n" : "\n");
+        }
+        return dump.append("        ]\n    },\n    \"status\": \"succeeded\"\n}").toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.x64dev.watcher.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads for the watch loop, tail reads and socket senders, platform or
+ * virtual depending on watcher.execution-mode
+ */
+@Component
+public class WatcherExecutors {
+
+    @Autowired
+    WatcherProperties properties;
+
+    /**
+     * Executor for short blocking tasks. Platform mode uses a fixed pool of the given size,
+     * or a cached pool when it is 0, virtual mode a virtual thread per task.
+     */
+    public ExecutorService newTaskExecutor(String name, int platformThreads) {
+        if (isVirtual()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        }
+        var factory = Thread.ofPlatform().name(name + "-", 0).daemon().factory();
+        return platformThreads > 0
+                ? Executors.newFixedThreadPool(platformThreads, factory)
+                : Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Start a long-running loop on its own thread
+     */
+    public Thread startLoop(String name, Runnable loop) {
+        return isVirtual()
+                ? Thread.ofVirtual().name(name).start(loop)
+                : Thread.ofPlatform().name(name).daemon().start(loop);
+    }
+
+    private boolean isVirtual() {
+        return properties.getExecutionMode() == WatcherProperties.ExecutionMode.VIRTUAL;
+    }
+}
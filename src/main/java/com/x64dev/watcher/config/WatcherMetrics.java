@@ -0,0 +1,134 @@
+package com.x64dev.watcher.config;
+
+import com.x64dev.watcher.models.LaravelReadTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer meters of the watch pipeline, per site and per socket session, on
+ * /actuator/metrics. The hot paths only bump counters and record timers, gauges
+ * are read when metrics are scraped.
+ */
+@Component
+public class WatcherMetrics {
+
+    private final MeterRegistry registry;
+
+    public WatcherMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Meters of one site, with a gauge of how many bytes its tail is behind the file
+     */
+    public <T> Site site(String site, T watcher, ToDoubleFunction<T> tailLagBytes) {
+        return new Site(site, watcher, tailLagBytes);
+    }
+
+    /**
+     * Meters of one socket session, with a gauge of the entries waiting in its queue.
+     * Close it with the session.
+     */
+    public <T> Session session(String sessionId, T sender, ToDoubleFunction<T> queuedEntries) {
+        return new Session(sessionId, sender, queuedEntries);
+    }
+
+    // Only used in tracing mode, so looking the timer up each time is fine
+    private void traceStage(LaravelReadTrace trace, String stage, long micros) {
+        Timer.builder("watcher.trace.latency").tag("site", trace.site()).tag("source", trace.source())
+                .tag("stage", stage).publishPercentiles(0.5, 0.95, 0.99)
+                .description("Write to client latency of traced entries, by stage").register(registry)
+                .record(Math.max(0, micros), TimeUnit.MICROSECONDS);
+    }
+
+    public class Site {
+        private final Counter parsedBytes;
+        private final Counter parsedEntries;
+        private final Timer readTime;
+        private final Timer loadTime;
+        private final Counter pollHits;
+        private final Counter pollMisses;
+
+        private <T> Site(String site, T watcher, ToDoubleFunction<T> tailLagBytes) {
+            parsedBytes = Counter.builder("watcher.parsed.bytes").tag("site", site).baseUnit("bytes")
+                    .description("Log bytes parsed").register(registry);
+            parsedEntries = Counter.builder("watcher.parsed.entries").tag("site", site)
+                    .description("Log entries parsed").register(registry);
+            readTime = Timer.builder("watcher.read").tag("site", site).publishPercentileHistogram()
+                    .description("Reading and parsing one burst of appended content").register(registry);
+            loadTime = Timer.builder("watcher.load").tag("site", site)
+                    .description("Loading a site's history on start").register(registry);
+            pollHits = Counter.builder("watcher.poll.reads").tag("site", site).tag("result", "hit")
+                    .description("Fallback poll reads that found new content").register(registry);
+            pollMisses = Counter.builder("watcher.poll.reads").tag("site", site).tag("result", "miss")
+                    .description("Fallback poll reads that found nothing").register(registry);
+            Gauge.builder("watcher.tail.lag", watcher, tailLagBytes).tag("site", site).baseUnit("bytes")
+                    .description("File size minus the position read up to").register(registry);
+        }
+
+        public void parsed(long bytes, long entries) {
+            parsedBytes.increment(bytes);
+            parsedEntries.increment(entries);
+        }
+
+        public void read(long nanos) {
+            readTime.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void loaded(long nanos) {
+            loadTime.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void polled(boolean found) {
+            (found ? pollHits : pollMisses).increment();
+        }
+    }
+
+    public class Session {
+        private final Timer sendTime;
+        private final Counter dropped;
+        private final List<Meter> meters;
+
+        private <T> Session(String sessionId, T sender, ToDoubleFunction<T> queuedEntries) {
+            sendTime = Timer.builder("watcher.session.send").tag("session", sessionId)
+                    .description("Writing one message to the socket").register(registry);
+            dropped = Counter.builder("watcher.session.dropped").tag("session", sessionId)
+                    .description("Entries dropped because the session fell behind").register(registry);
+            Gauge queued = Gauge.builder("watcher.session.queued", sender, queuedEntries).tag("session", sessionId)
+                    .description("Entries waiting to be sent").register(registry);
+            meters = List.of(sendTime, dropped, queued);
+        }
+
+        public void sent(long nanos) {
+            sendTime.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void dropped(long entries) {
+            dropped.increment(entries);
+        }
+
+        /**
+         * Latencies of a traced read whose entries went out at sentMicros, per stage:
+         * written to detected, detected to parsed, parsed to sent, and written to sent
+         */
+        public void traced(LaravelReadTrace trace, long sentMicros) {
+            traceStage(trace, "detect", trace.detectedMicros() - trace.writtenMicros());
+            traceStage(trace, "parse", trace.parsedMicros() - trace.detectedMicros());
+            traceStage(trace, "send", sentMicros - trace.parsedMicros());
+            traceStage(trace, "total", sentMicros - trace.writtenMicros());
+        }
+
+        // Sessions come and go, don't leave their meters behind
+        public void close() {
+            meters.forEach(registry::remove);
+        }
+    }
+}
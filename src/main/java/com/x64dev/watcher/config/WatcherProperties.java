@@ -0,0 +1,92 @@
+package com.x64dev.watcher.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tuning knobs for the log watchers, bound from "watcher.*" in application.properties
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "watcher")
+public class WatcherProperties {
+    // Newest entries sent with the initial stats snapshot
+    private int snapshotSize = 100;
+    // Upper bound on the entries returned for one page of history
+    private int maxPageSize = 500;
+    // A resuming client is replayed what it missed from the files if that is at most this many bytes,
+    // otherwise it gets a fresh snapshot
+    private long replayMaxBytes = 4 * 1024 * 1024;
+    // SSE streams get a comment this often, so idle proxies keep them open and gone clients are noticed
+    private long sseHeartbeatMs = 15000;
+    // Newest entries each site keeps in memory for snapshots and pages, by count and estimated heap
+    private int bufferEntries = 1000;
+    private long bufferBytes = 4 * 1024 * 1024;
+    // Threads for the first parse of a site's history, 1 parses sequentially while streaming
+    private int parseParallelism = 1;
+    // Keep a token index of every entry for the search endpoint
+    private boolean searchIndex = true;
+    // Where each log file's binary sidecar index is kept for fast restarts, empty to parse everything on start
+    private String sidecarDir = "";
+    // How far timestamps may run backwards between entries, for time-range reads
+    private long clockSkewMs = 60000;
+
+    // How live entries are pushed to sockets, per site overrides win
+    private DispatchMode dispatchMode = DispatchMode.BATCH;
+    private Map<String, DispatchMode> siteDispatchModes = new HashMap<>();
+    // A batch goes out when it reaches this many entries...
+    private int batchSize = 200;
+    // ...or this long after its first entry, whichever comes first
+    private long batchDelayMs = 250;
+
+    // Entries a session may have waiting to be sent before the overflow policy applies
+    private int sessionQueueCapacity = 10000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.GAP;
+
+    // How often the shared poller looks for files that may have missed events
+    private long fallbackPollIntervalMs = 1000;
+    // A file with no events for this long is checked by the poller anyway
+    private long fallbackIdleMs = 5000;
+    // The last entry read waits this long for continuation lines written later before it goes
+    // out, unless the next entry's header comes first
+    private long openEntryGraceMs = 500;
+    // Threads shared by all sites for reading appended content
+    private int tailThreads = Runtime.getRuntime().availableProcessors();
+    // Stamp live entries with when they were written, detected, parsed and sent, and publish the
+    // latencies per site; costs a clock read and a stat per read and a bigger update frame
+    private boolean tracing = false;
+
+    // Threads behind the watch loop, tail reads and socket senders
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    public DispatchMode dispatchModeFor(String site) {
+        return siteDispatchModes.getOrDefault(site, dispatchMode);
+    }
+
+    public enum DispatchMode {
+        // One "single" message per entry, for low-volume sites
+        SINGLE,
+        // Entries coalesced into "multiple" messages
+        BATCH
+    }
+
+    public enum ExecutionMode {
+        // Pooled platform threads, tail reads limited to tail-threads
+        PLATFORM,
+        // A virtual thread per tail read and per session drain
+        VIRTUAL
+    }
+
+    public enum OverflowPolicy {
+        // Silently drop the oldest queued entries
+        DROP_OLDEST,
+        // Drop the oldest queued entries and tell the client how many with a "gap" message
+        GAP,
+        // Close the session, the client reconnects and gets a fresh snapshot
+        DISCONNECT
+    }
+}
@@ -1,14 +1,27 @@
 package com.x64dev.watcher.controllers;
 
 import com.x64dev.watcher.models.ApiResponse;
+import com.x64dev.watcher.models.LaravelBufferUsage;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import com.x64dev.watcher.models.LaravelLogPage;
+import com.x64dev.watcher.models.LaravelSearchPage;
+import com.x64dev.watcher.service.LaravelService;
 import com.x64dev.watcher.service.WatcherService;
+import com.x64dev.watcher.socks.laravel.LaravelSockHandler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,6 +32,11 @@ public class WatcherController {
 
     @Autowired
     WatcherService watcherService;
+    @Autowired
+    LaravelService laravelService;
+    @Autowired
+    LaravelSockHandler sockHandler;
+
     @CrossOrigin(origins = "*")
     @GetMapping("/sites")
     public ResponseEntity<ApiResponse<List<String>>> getAvailableSites(){
@@ -28,4 +46,78 @@ public class WatcherController {
         resp.setData(sites);
         return new ResponseEntity<>(resp, HttpStatus.OK);
     }
+
+    @CrossOrigin(origins = "*")
+    @GetMapping("/sites/buffers")
+    public ResponseEntity<ApiResponse<List<LaravelBufferUsage>>> getBufferUsage(){
+        var usage = laravelService.bufferUsage();
+        ApiResponse<List<LaravelBufferUsage>> resp = new ApiResponse<>();
+        resp.setMessage("Buffer usage");
+        resp.setData(usage);
+        return new ResponseEntity<>(resp, HttpStatus.OK);
+    }
+
+    @CrossOrigin(origins = "*")
+    @GetMapping("/sites/{site}/logs")
+    public ResponseEntity<ApiResponse<LaravelLogPage>> getLogPage(@PathVariable String site,
+                                                                  @RequestParam String cursor,
+                                                                  @RequestParam(required = false) Integer limit){
+        requireSite(site);
+        var page = laravelService.loadPage(site, cursor, limit);
+        ApiResponse<LaravelLogPage> resp = new ApiResponse<>();
+        resp.setMessage("Older logs");
+        resp.setData(page);
+        return new ResponseEntity<>(resp, HttpStatus.OK);
+    }
+
+    @CrossOrigin(origins = "*")
+    @GetMapping("/sites/{site}/logs/range")
+    public ResponseEntity<ApiResponse<LaravelLogPage>> getTimeRange(@PathVariable String site,
+                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                    @RequestParam(required = false) Integer limit){
+        requireSite(site);
+        var page = laravelService.loadTimeRange(site, from, to, limit);
+        ApiResponse<LaravelLogPage> resp = new ApiResponse<>();
+        resp.setMessage("Logs in range");
+        resp.setData(page);
+        return new ResponseEntity<>(resp, HttpStatus.OK);
+    }
+
+    @CrossOrigin(origins = "*")
+    @GetMapping("/sites/{site}/search")
+    public ResponseEntity<ApiResponse<LaravelSearchPage>> search(@PathVariable String site,
+                                                                 @RequestParam String q,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer limit){
+        requireSite(site);
+        var page = laravelService.search(site, q, cursor, limit);
+        ApiResponse<LaravelSearchPage> resp = new ApiResponse<>();
+        resp.setMessage("Search results");
+        resp.setData(page);
+        return new ResponseEntity<>(resp, HttpStatus.OK);
+    }
+
+    // Live entries as server-sent events, for clients that handle WebSocket badly. Filter fields are
+    // query parameters (?minLevel=WARNING&text=...), Last-Event-ID or ?resumeFrom= resumes from an offset.
+    @CrossOrigin(origins = "*")
+    @GetMapping(path = "/sites/{site}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@PathVariable String site,
+                             LaravelLogFilter filter,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                             @RequestParam(required = false) Long resumeFrom){
+        requireSite(site);
+        try {
+            return sockHandler.stream(site, filter, lastEventId != null ? lastEventId : resumeFrom);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid filter: " + e.getMessage());
+        }
+    }
+
+    // Unknown names never get to the watcher map, which would start a watcher and create the directory
+    private void requireSite(String site){
+        if (!watcherService.isSite(site)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown site: " + site);
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package com.x64dev.watcher.models;
+
+import lombok.Data;
+
+@Data
+public class LaravelBufferUsage {
+    private String site;
+    private int entries;
+    private int maxEntries;
+    // Estimated heap held by the buffered entries
+    private long bytes;
+    private long maxBytes;
+    private long evicted;
+}
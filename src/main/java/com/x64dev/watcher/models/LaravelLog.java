@@ -1,48 +1,250 @@
 package com.x64dev.watcher.models;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * One log entry, kept compact since a site may hold many of them: the timestamp
+ * as epoch seconds, the level as one of LaravelLogHeader's shared strings, and
+ * message, context and stack trace as slices of a single UTF-8 byte array that
+ * are decoded when read. Continuation lines from the parser are kept as read and
+ * only split into context and stack trace, and scanned for additionalData, the
+ * first time one of those getters is called, so entries that are only counted or
+ * indexed never pay for it.
+ * Setters only stage the parts, they are encoded together once by seal(), which
+ * the parser calls when an entry is complete. Such an entry is immutable once
+ * parsed. Getters and setters are the same as ever, so is the JSON.
+ */
+@JsonPropertyOrder({"timestamp", "level", "message", "context", "stackTrace", "additionalData", "offset"})
 public class LaravelLog {
-    private LocalDateTime timestamp;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final byte[] EMPTY = new byte[0];
+    // Slice lengths of a text part that was never set
+    private static final int NONE = -1;
+
+    private long epochSecond = NO_TIMESTAMP;
     private String level;
-    private String message;
-    private String context;
-    private String stackTrace;
+    // Message, context and stack trace back to back, or message and continuation lines when rawDetails
+    private byte[] text = EMPTY;
+    // The same parts as strings while the entry is being built, null once sealed
+    private String[] staged;
+    private int messageLength = NONE;
+    private int contextLength = NONE;
+    private int stackTraceLength = NONE;
+    // The context slice holds continuation lines as read, there is no stack trace slice
+    private boolean rawDetails;
+    // Only set explicitly, otherwise derived from the context
     private Map<String, String> additionalData;
+    // Continuation lines split up, worked out on first read. Always the same, so racing readers are fine.
+    private volatile Details details;
+    // Byte offset of the header line in the log file
+    private long offset;
 
-    public LaravelLog() {
-        this.additionalData = new HashMap<>();
+    // Getters and setters
+    public LocalDateTime getTimestamp() {
+        return epochSecond == NO_TIMESTAMP ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.epochSecond = timestamp == null ? NO_TIMESTAMP : timestamp.toEpochSecond(ZoneOffset.UTC);
     }
 
-    // Getters and setters
-    public LocalDateTime getTimestamp() { return timestamp; }
-    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    /**
+     * Timestamp as seconds since the epoch read as UTC, without building a LocalDateTime
+     */
+    public long epochSecond() { return epochSecond; }
 
     public String getLevel() { return level; }
-    public void setLevel(String level) { this.level = level; }
+    public void setLevel(String level) { this.level = LaravelLogHeader.sharedLevel(level); }
 
-    public String getMessage() { return message; }
-    public void setMessage(String message) { this.message = message; }
+    public String getMessage() { return part(0); }
+    public void setMessage(String message) { stage(0, message); }
 
-    public String getContext() { return context; }
-    public void setContext(String context) { this.context = context; }
+    public String getContext() {
+        return rawDetails ? details().context() : part(1);
+    }
+    public void setContext(String context) {
+        splitDetails();
+        stage(1, context);
+    }
 
-    public String getStackTrace() { return stackTrace; }
-    public void setStackTrace(String stackTrace) { this.stackTrace = stackTrace; }
+    public String getStackTrace() {
+        return rawDetails ? details().stackTrace() : part(2);
+    }
+    public void setStackTrace(String stackTrace) {
+        splitDetails();
+        stage(2, stackTrace);
+    }
 
-    public Map<String, String> getAdditionalData() { return additionalData; }
-    public void setAdditionalData(Map<String, String> additionalData) { this.additionalData = additionalData; }
+    public Map<String, String> getAdditionalData() {
+        if (additionalData != null) {
+            return additionalData;
+        }
+        return rawDetails ? details().additionalData() : Collections.emptyMap();
+    }
+    public void setAdditionalData(Map<String, String> additionalData) {
+        splitDetails();
+        this.additionalData = additionalData == null || additionalData.isEmpty() ? null : additionalData;
+    }
+
+    /**
+     * Continuation lines of the entry as read, split up by the getters when they are asked for
+     */
+    public void setDetails(String details) {
+        stage(1, details);
+        stage(2, null);
+        rawDetails = true;
+        additionalData = null;
+        this.details = null;
+    }
+
+    public long getOffset() { return offset; }
+    public void setOffset(long offset) { this.offset = offset; }
 
     public void addAdditionalData(String key, String value) {
+        splitDetails();
+        if (additionalData == null) {
+            additionalData = new HashMap<>(4);
+        }
         this.additionalData.put(key, value);
     }
 
+    /**
+     * Encode the staged parts into the one byte array. Setting a part afterwards stages them again.
+     */
+    public void seal() {
+        if (staged == null) {
+            return;
+        }
+        byte[][] parts = new byte[3][];
+        int total = 0;
+        for (int i = 0; i < 3; i++) {
+            parts[i] = staged[i] == null ? EMPTY : staged[i].getBytes(StandardCharsets.UTF_8);
+            total += parts[i].length;
+        }
+        byte[] sealed = total == 0 ? EMPTY : new byte[total];
+        int start = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, sealed, start, part.length);
+            start += part.length;
+        }
+        messageLength = staged[0] == null ? NONE : parts[0].length;
+        contextLength = staged[1] == null ? NONE : parts[1].length;
+        stackTraceLength = staged[2] == null ? NONE : parts[2].length;
+        text = sealed;
+        staged = null;
+    }
+
+    /**
+     * Bytes of message, context and stack trace as stored
+     */
+    public int textBytes() {
+        if (staged == null) {
+            return text.length;
+        }
+        int total = 0;
+        for (String part : staged) {
+            total += part == null ? 0 : part.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return total;
+    }
+
+    // Turn raw continuation lines into context and stack trace slices before one of them is set
+    private void splitDetails() {
+        if (!rawDetails) {
+            return;
+        }
+        Details split = details();
+        rawDetails = false;
+        details = null;
+        stage(1, split.context());
+        stage(2, split.stackTrace());
+        additionalData = split.additionalData().isEmpty() ? null : new HashMap<>(split.additionalData());
+    }
+
+    private Details details() {
+        Details split = details;
+        if (split == null) {
+            String[] parts = LaravelLogParser.splitDetails(part(1));
+            split = new Details(parts[0], parts[1],
+                    Collections.unmodifiableMap(LaravelLogParser.additionalData(parts[0])));
+            details = split;
+        }
+        return split;
+    }
+
+    /**
+     * Hand each stored part to the reader as UTF-8 bytes, without decoding or splitting them:
+     * message, then context and stack trace, or the continuation lines as read
+     */
+    public void readText(TextReader reader) {
+        if (staged != null) {
+            for (String part : staged) {
+                if (part != null) {
+                    byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                    reader.read(bytes, 0, bytes.length);
+                }
+            }
+            return;
+        }
+        for (int part = 0; part < 3; part++) {
+            if (length(part) > 0) {
+                reader.read(text, start(part), length(part));
+            }
+        }
+    }
+
+    public interface TextReader {
+        void read(byte[] text, int start, int length);
+    }
+
+    private record Details(String context, String stackTrace, Map<String, String> additionalData) {
+    }
+
+    // A part as a string: 0 message, 1 context, 2 stack trace
+    private String part(int part) {
+        if (staged != null) {
+            return staged[part];
+        }
+        int length = length(part);
+        return length == NONE ? null : new String(text, start(part), length, StandardCharsets.UTF_8);
+    }
+
+    // Where a part starts in text: 0 message, 1 context, 2 stack trace
+    private int start(int part) {
+        int start = 0;
+        if (part > 0) {
+            start += Math.max(0, messageLength);
+        }
+        if (part > 1) {
+            start += Math.max(0, contextLength);
+        }
+        return start;
+    }
+
+    private int length(int part) {
+        return switch (part) {
+            case 0 -> messageLength;
+            case 1 -> contextLength;
+            default -> stackTraceLength;
+        };
+    }
+
+    private void stage(int part, String value) {
+        if (staged == null) {
+            staged = new String[]{part(0), part(1), part(2)};
+        }
+        staged[part] = value;
+    }
+
     @Override
     public String toString() {
         return String.format("{timestamp:%s, level:'%s', message:'%s', context:'%s', stackTrace:'%s', additionalData:%s}",
-                timestamp, level, message, context, stackTrace, additionalData);
+                getTimestamp(), level, getMessage(), getContext(), getStackTrace(), getAdditionalData());
     }
 }
-
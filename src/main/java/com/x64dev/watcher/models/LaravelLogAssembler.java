@@ -0,0 +1,62 @@
+package com.x64dev.watcher.models;
+
+import java.util.function.Consumer;
+
+/**
+ * Groups lines into entries: a header line starts an entry and every following
+ * line up to the next header is its context or stack trace. Shared by the file
+ * parser and the watcher's tail so both build entries the same way.
+ */
+public class LaravelLogAssembler {
+
+    private final Consumer<LaravelLog> consumer;
+    private final StringBuilder multiLineContent = new StringBuilder();
+    private LaravelLog currentEntry;
+
+    public LaravelLogAssembler(Consumer<LaravelLog> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Feed one line starting at the given byte offset of the file
+     */
+    public void accept(String line, long offset) {
+        LaravelLog header = LaravelLogHeader.parse(line);
+
+        if (header != null) {
+            // Hand over previous entry if exists
+            flush();
+
+            // Timestamp, level (e.g., "local.ERROR" -> "ERROR") and message
+            header.setOffset(offset);
+            currentEntry = header;
+
+        } else if (currentEntry != null) {
+            // This is a continuation line (stack trace, context, etc.)
+            multiLineContent.append(line).append("\n");
+        }
+    }
+
+    /**
+     * Hand over the entry being assembled, if any
+     */
+    public void flush() {
+        if (currentEntry != null) {
+            LaravelLogParser.finalizeLogEntry(currentEntry, multiLineContent.toString());
+            consumer.accept(currentEntry);
+        }
+        reset();
+    }
+
+    /**
+     * Offset of the entry being assembled, or -1
+     */
+    public long openOffset() {
+        return currentEntry == null ? -1 : currentEntry.getOffset();
+    }
+
+    public void reset() {
+        currentEntry = null;
+        multiLineContent.setLength(0);
+    }
+}
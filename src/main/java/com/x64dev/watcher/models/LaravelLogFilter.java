@@ -0,0 +1,87 @@
+package com.x64dev.watcher.models;
+
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Which live entries a subscription wants, sent by the client with its site.
+ * Every part that is set must match. Equal specs are compiled once and shared.
+ */
+@Data
+public class LaravelLogFilter {
+    // Lowest level to receive, e.g. WARNING also lets ERROR and CRITICAL through
+    private String minLevel;
+    // Only these levels
+    private Set<String> levels;
+    // Case-insensitive substring
+    private String text;
+    // Regex, found anywhere in the field
+    private String pattern;
+    private Field field = Field.MESSAGE;
+
+    public enum Field {
+        MESSAGE,
+        CONTEXT,
+        // Message or context
+        ANY
+    }
+
+    public boolean isEmpty() {
+        return minLevel == null && (levels == null || levels.isEmpty()) && text == null && pattern == null;
+    }
+
+    /**
+     * Predicate for this spec, throws IllegalArgumentException for an unknown level or a bad regex
+     */
+    public Predicate<LaravelLog> compile() {
+        Predicate<LaravelLog> predicate = entry -> true;
+        if (minLevel != null) {
+            int min = LaravelLogHeader.severity(minLevel);
+            if (min < 0) {
+                throw new IllegalArgumentException("Unknown level: " + minLevel);
+            }
+            predicate = predicate.and(entry -> LaravelLogHeader.severity(entry.getLevel()) >= min);
+        }
+        if (levels != null && !levels.isEmpty()) {
+            Set<String> wanted = new HashSet<>();
+            for (String level : levels) {
+                wanted.add(level.toUpperCase());
+            }
+            // Levels from the header scanner are already upper case
+            predicate = predicate.and(entry -> entry.getLevel() != null && wanted.contains(entry.getLevel().toUpperCase()));
+        }
+        if (text != null) {
+            String needle = text;
+            predicate = predicate.and(entry -> matches(entry, value -> containsIgnoreCase(value, needle)));
+        }
+        if (pattern != null) {
+            Pattern regex = Pattern.compile(pattern);
+            predicate = predicate.and(entry -> matches(entry, value -> regex.matcher(value).find()));
+        }
+        return predicate;
+    }
+
+    private boolean matches(LaravelLog entry, Predicate<String> test) {
+        return switch (field) {
+            case MESSAGE -> entry.getMessage() != null && test.test(entry.getMessage());
+            case CONTEXT -> entry.getContext() != null && test.test(entry.getContext());
+            case ANY -> (entry.getMessage() != null && test.test(entry.getMessage()))
+                    || (entry.getContext() != null && test.test(entry.getContext()));
+        };
+    }
+
+    // Without lowercasing the whole value for every entry
+    private static boolean containsIgnoreCase(String value, String needle) {
+        int last = value.length() - needle.length();
+        for (int i = 0; i <= last; i++) {
+            if (value.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
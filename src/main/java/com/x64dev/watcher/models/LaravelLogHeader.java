@@ -0,0 +1,205 @@
+package com.x64dev.watcher.models;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Hand-written scanner for the "[yyyy-MM-dd HH:mm:ss] env.LEVEL: message" header.
+ * Accepts the same lines as the old LOG_PATTERN when the header starts the line,
+ * without a regex, a DateTimeFormatter or split(). Lines that don't start with '['
+ * are rejected on the first character.
+ */
+public final class LaravelLogHeader {
+
+    // "[yyyy-MM-dd HH:mm:ss]" + ' ' + "a.b:" + ' ' + one message character
+    private static final int MIN_LENGTH = 28;
+
+    private static final String[] LEVELS = {
+            "DEBUG", "INFO", "NOTICE", "WARNING", "ERROR", "CRITICAL", "ALERT", "EMERGENCY"
+    };
+
+    private LaravelLogHeader() {
+    }
+
+    /**
+     * Parse a header line into a new entry with timestamp, level and message, or null for any other line
+     */
+    public static LaravelLog parse(String line) {
+        int length = line.length();
+        if (length < MIN_LENGTH || line.charAt(0) != '[') {
+            return null;
+        }
+        if (line.charAt(5) != '-' || line.charAt(8) != '-' || line.charAt(11) != ' '
+                || line.charAt(14) != ':' || line.charAt(17) != ':' || line.charAt(20) != ']') {
+            return null;
+        }
+
+        int year = digits(line, 1, 4);
+        int month = digits(line, 6, 2);
+        int day = digits(line, 9, 2);
+        int hour = digits(line, 12, 2);
+        int minute = digits(line, 15, 2);
+        int second = digits(line, 18, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return null;
+        }
+
+        int pos = 21;
+        int spaceStart = pos;
+        while (pos < length && isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        if (pos == spaceStart) {
+            return null;
+        }
+
+        // env.LEVEL:
+        int envStart = pos;
+        while (pos < length && isWord(line.charAt(pos))) {
+            pos++;
+        }
+        if (pos == envStart || pos >= length || line.charAt(pos) != '.') {
+            return null;
+        }
+        int levelStart = ++pos;
+        while (pos < length && isWord(line.charAt(pos))) {
+            pos++;
+        }
+        int levelEnd = pos;
+        if (levelEnd == levelStart || pos >= length || line.charAt(pos) != ':') {
+            return null;
+        }
+
+        String message = message(line, pos + 1);
+        if (message == null) {
+            return null;
+        }
+
+        LocalDateTime timestamp = timestamp(year, month, day, hour, minute, second);
+        if (timestamp == null) {
+            return null;
+        }
+
+        LaravelLog entry = new LaravelLog();
+        entry.setTimestamp(timestamp);
+        entry.setLevel(level(line, levelStart, levelEnd));
+        entry.setMessage(message);
+        return entry;
+    }
+
+    /**
+     * Position of a level from DEBUG (0) to EMERGENCY (7), ignoring case, or -1 for anything else
+     */
+    public static int severity(String level) {
+        if (level == null) {
+            return -1;
+        }
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equalsIgnoreCase(level)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The shared string for a standard level written the standard way, so entries don't each
+     * hold a copy, otherwise the level itself
+     */
+    public static String sharedLevel(String level) {
+        if (level == null) {
+            return null;
+        }
+        for (String shared : LEVELS) {
+            if (shared.equals(level)) {
+                return shared;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Whether the line starts with a stack frame marker such as "#12"
+     */
+    public static boolean isStackFrame(String line) {
+        return line.length() > 1 && line.charAt(0) == '#' && isDigit(line.charAt(1));
+    }
+
+    // Whitespace then at least one character, ending at the first line terminator
+    private static String message(String line, int from) {
+        int length = line.length();
+        int pos = from;
+        while (pos < length && isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        if (pos == from) {
+            return null;
+        }
+        // Like "\\s+(.+)", give whitespace back when nothing else follows
+        for (int start = pos; start > from; start--) {
+            int end = start;
+            while (end < length && !isTerminator(line.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                return line.substring(start, end);
+            }
+        }
+        return null;
+    }
+
+    private static LocalDateTime timestamp(int year, int month, int day, int hour, int minute, int second) {
+        if (month < 1 || month > 12) {
+            return null;
+        }
+        // Same day clamping as DateTimeFormatter's default SMART resolver
+        if (day > 28) {
+            day = Math.min(day, Month.of(month).length(Year.isLeap(year)));
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static String level(String line, int start, int end) {
+        int length = end - start;
+        for (String level : LEVELS) {
+            if (level.length() == length && line.regionMatches(start, level, 0, length)) {
+                return level;
+            }
+        }
+        return line.substring(start, end);
+    }
+
+    private static int digits(String line, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,13 @@
+package com.x64dev.watcher.models;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LaravelLogPage {
+    // Oldest first, like LaravelStateStats.logs
+    private List<LaravelLog> logs;
+    // Pass back to get the entries before this page, null when there are none
+    private String cursor;
+}
@@ -4,104 +4,323 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 public class LaravelLogParser {
 
 
-    // Pattern to match Laravel log format: [2023-12-01 10:30:45] local.ERROR: Message
-    private static final Pattern LOG_PATTERN = Pattern.compile(
-            "\\[(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\]\\s+(\\w+\\.\\w+):\\s+(.+)"
-    );
+    // Key-value pairs in the context, e.g. "userId: 42"
+    private static final Pattern KEY_VALUE_PATTERN = Pattern.compile("(\\w+):\\s*([^\\n]+)");
 
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final Logger log = LoggerFactory.getLogger(LaravelLogParser.class);
 
+    // Binary search stops once the window is this small and scans the rest
+    private static final long SEEK_WINDOW = 16 * 1024;
+    // Small reads, a time lookup only touches a few KB around each probe
+    private static final int SEEK_BUFFER_SIZE = 4 * 1024;
+    // Parallel parsing stops splitting ranges below this size
+    private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
     /**
      * Parse Laravel log file and return list of log entries
      */
     public static List<LaravelLog> parseLogFile(String filePath){
         List<LaravelLog> logEntries = new ArrayList<>();
-        try{
-            List<String> lines = Files.readAllLines(Paths.get(filePath));
+        parseLogFile(filePath, logEntries::add);
+        return logEntries;
+    }
+
+    /**
+     * Stream a Laravel log file, handing each entry to the consumer as soon as it is complete.
+     * Only the entry being assembled is held in memory. Returns the number of bytes consumed.
+     */
+    public static long parseLogFile(String filePath, Consumer<LaravelLog> consumer){
+        return parseRange(filePath, 0, Long.MAX_VALUE, consumer);
+    }
 
-            LaravelLog currentEntry = null;
-            StringBuilder multiLineContent = new StringBuilder();
+    /**
+     * Same entries in the same order as parseLogFile, parsed on a ForkJoinPool of the given size.
+     * The file is split into byte ranges at header lines and the ranges are parsed concurrently,
+     * then handed to the consumer in file order. Unlike parseLogFile every entry is held until
+     * the end. Returns the number of bytes consumed.
+     */
+    public static long parseLogFileParallel(String filePath, int parallelism, Consumer<LaravelLog> consumer){
+        return parseLogFileParallel(filePath, parallelism, true, consumer);
+    }
 
-            for (String line : lines) {
-                Matcher matcher = LOG_PATTERN.matcher(line);
+    /**
+     * Same, without flushPartial a trailing line without '\n' is left for whoever tails the file
+     */
+    public static long parseLogFileParallel(String filePath, int parallelism, boolean flushPartial,
+                                            Consumer<LaravelLog> consumer){
+        long size;
+        try {
+            size = Files.size(Paths.get(filePath));
+        } catch (IOException e) {
+            log.error("Failed to parse the files: {}", e.getMessage());
+            return 0;
+        }
+        if (parallelism <= 1 || size <= MIN_SPLIT_SIZE || isGzip(filePath)) {
+            return parseRange(filePath, 0, Long.MAX_VALUE, flushPartial, consumer);
+        }
 
-                if (matcher.find()) {
-                    // Save previous entry if exists
-                    if (currentEntry != null) {
-                        finalizeLogEntry(currentEntry, multiLineContent.toString());
-                        logEntries.add(currentEntry);
-                    }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long splitSize = Math.max(MIN_SPLIT_SIZE, size / (parallelism * 4L));
+            // The last range runs to EOF like the sequential parse, in case the file grew
+            ParsedRange parsed = pool.invoke(new RangeTask(filePath, 0, Long.MAX_VALUE, size, splitSize, flushPartial));
+            parsed.chunks().forEach(chunk -> chunk.forEach(consumer));
+            return parsed.consumed();
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-                    // Create new entry
-                    currentEntry = new LaravelLog();
+    /**
+     * Parse the entries starting in [start, end) of a log file. start should be the offset of a header line.
+     * Returns the offset just past the last line read.
+     */
+    public static long parseRange(String filePath, long start, long end, Consumer<LaravelLog> consumer){
+        return parseRange(filePath, start, end, true, consumer);
+    }
 
-                    // Parse timestamp
-                    String timestampStr = matcher.group(1);
-                    currentEntry.setTimestamp(LocalDateTime.parse(timestampStr, DATE_FORMATTER));
+    /**
+     * Same, without flushPartial a trailing line without '\n' is not read, it may still be being
+     * written. The returned offset is then just past the last '\n', where a tail picks up.
+     */
+    public static long parseRange(String filePath, long start, long end, boolean flushPartial,
+                                  Consumer<LaravelLog> consumer){
+        try(ReadableByteChannel channel = open(filePath, start)){
+            LogLineReader reader = new LogLineReader(channel, start, LogLineReader.DEFAULT_BUFFER_SIZE);
+            LaravelLogAssembler assembler = new LaravelLogAssembler(consumer);
+
+            long consumed = start;
+            String line;
+            while ((line = reader.readLine(flushPartial)) != null) {
+                if (reader.lineStart() >= end) {
+                    break;
+                }
+                assembler.accept(line, reader.lineStart());
+                consumed = reader.position();
+            }
 
-                    // Parse level (e.g., "local.ERROR" -> "ERROR")
-                    String levelStr = matcher.group(2);
-                    String[] levelParts = levelStr.split("\\.");
-                    currentEntry.setLevel(levelParts.length > 1 ? levelParts[1] : levelStr);
+            // Don't forget the last entry
+            assembler.flush();
+            return consumed;
 
-                    // Parse message
-                    String message = matcher.group(3);
-                    currentEntry.setMessage(message);
+        }catch (IOException e){
+            log.error("Failed to parse the files: {}", e.getMessage());
+        }
+        return start;
+    }
 
-                    // Reset multiline content
-                    multiLineContent = new StringBuilder();
+    /**
+     * Entries with from <= timestamp <= to, at most limit of them. Binary searches the file for
+     * the last header before from - skew instead of parsing from the start, then stops at the
+     * first entry after to + skew. Timestamps may run backwards by up to skew.
+     */
+    public static List<LaravelLog> parseTimeRange(String filePath, LocalDateTime from, LocalDateTime to,
+                                                  int limit, Duration skew){
+        List<LaravelLog> entries = new ArrayList<>();
+        try(ReadableByteChannel channel = open(filePath, 0)){
+            LogLineReader reader;
+            if (channel instanceof FileChannel file) {
+                reader = new LogLineReader(file, 0, SEEK_BUFFER_SIZE);
+                reader.seek(seekTime(file, reader, from.minus(skew)));
+            } else {
+                // A compressed archive cannot seek, scan it from the start
+                reader = new LogLineReader(channel, 0, LogLineReader.DEFAULT_BUFFER_SIZE);
+            }
 
-                } else if (currentEntry != null) {
-                    // This is a continuation line (stack trace, context, etc.)
-                    multiLineContent.append(line).append("\n");
+            LocalDateTime stopAfter = to.plus(skew);
+            boolean[] done = {false};
+            LaravelLogAssembler assembler = new LaravelLogAssembler(entry -> {
+                if (done[0]) {
+                    return;
                 }
-            }
+                if (entry.getTimestamp().isAfter(stopAfter)) {
+                    done[0] = true;
+                } else if (!entry.getTimestamp().isBefore(from) && !entry.getTimestamp().isAfter(to)) {
+                    entries.add(entry);
+                    done[0] = entries.size() >= limit;
+                }
+            });
 
-            // Don't forget the last entry
-            if (currentEntry != null) {
-                finalizeLogEntry(currentEntry, multiLineContent.toString());
-                logEntries.add(currentEntry);
+            String line;
+            while (!done[0] && (line = reader.readLine(true)) != null) {
+                assembler.accept(line, reader.lineStart());
             }
+            assembler.flush();
+        }catch (IOException e){
+            log.error("Failed to parse the files: {}", e.getMessage());
+        }
+        return entries;
+    }
 
+    /**
+     * Whether the file is a gzip archive, read by streaming it through an inflater
+     */
+    public static boolean isGzip(String filePath) {
+        return filePath.endsWith(".gz");
+    }
+
+    // A plain file as a FileChannel, an archive as a stream inflated on the fly, positioned at start
+    private static ReadableByteChannel open(String filePath, long start) throws IOException {
+        if (!isGzip(filePath)) {
+            return FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        }
+        InputStream in = new GZIPInputStream(Files.newInputStream(Paths.get(filePath)), LogLineReader.DEFAULT_BUFFER_SIZE);
+        try {
+            in.skipNBytes(start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return Channels.newChannel(in);
+    }
+
+    // Offset of the first header line at or after position and before end, or end if there is none
+    private static long nextHeader(String filePath, long position, long end) {
+        try(FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)){
+            LogLineReader reader = new LogLineReader(channel, position, SEEK_BUFFER_SIZE);
+            // The line under position is most likely cut, a header can only start on the next one
+            reader.readLine(false);
+            String line;
+            while ((line = reader.readLine(false)) != null && reader.lineStart() < end) {
+                if (LaravelLogHeader.parse(line) != null) {
+                    return reader.lineStart();
+                }
+            }
         }catch (IOException e){
             log.error("Failed to parse the files: {}", e.getMessage());
         }
-        return logEntries;
+        return end;
+    }
+
+    // Entries of consecutive ranges in file order, concatenated only by the consumer
+    private record ParsedRange(List<List<LaravelLog>> chunks, long consumed) {
+    }
+
+    // Halves its range at a header line until it is small enough, then parses it with parseRange
+    private static class RangeTask extends RecursiveTask<ParsedRange> {
+        private static final long serialVersionUID = 1L;
+
+        private final String filePath;
+        private final long start;
+        private final long end;
+        // end, or the file size when end is open
+        private final long limit;
+        private final long splitSize;
+        // Only matters to the last range, the others end at a header
+        private final boolean flushPartial;
+
+        RangeTask(String filePath, long start, long end, long limit, long splitSize, boolean flushPartial) {
+            this.filePath = filePath;
+            this.start = start;
+            this.end = end;
+            this.limit = limit;
+            this.splitSize = splitSize;
+            this.flushPartial = flushPartial;
+        }
+
+        @Override
+        protected ParsedRange compute() {
+            if (limit - start > splitSize) {
+                long split = nextHeader(filePath, start + (limit - start) / 2, limit);
+                if (split < limit) {
+                    RangeTask right = new RangeTask(filePath, split, end, limit, splitSize, flushPartial);
+                    right.fork();
+                    ParsedRange left = new RangeTask(filePath, start, split, split, splitSize, true).compute();
+                    ParsedRange tail = right.join();
+                    List<List<LaravelLog>> chunks = new ArrayList<>(left.chunks());
+                    chunks.addAll(tail.chunks());
+                    return new ParsedRange(chunks, tail.consumed());
+                }
+            }
+            List<LaravelLog> entries = new ArrayList<>();
+            long consumed = parseRange(filePath, start, end, flushPartial, entries::add);
+            return new ParsedRange(List.of(entries), consumed);
+        }
+    }
+
+    // Offset of a header before every entry at or after target, 0 if there is none.
+    // Keeps low on a header older than target and moves high down past newer ones.
+    private static long seekTime(FileChannel channel, LogLineReader reader, LocalDateTime target) throws IOException {
+        long low = 0;
+        long high = channel.size();
+        while (high - low > SEEK_WINDOW) {
+            long mid = low + (high - low) / 2;
+            reader.seek(mid);
+            // The line under mid is most likely cut, start looking on the next one
+            reader.readLine(false);
+            LaravelLog header = null;
+            String line;
+            while ((line = reader.readLine(false)) != null && reader.lineStart() < high) {
+                header = LaravelLogHeader.parse(line);
+                if (header != null) {
+                    break;
+                }
+            }
+            if (header != null && header.getTimestamp().isBefore(target)) {
+                low = reader.lineStart();
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     /**
-     * Finalize log entry by parsing additional content
+     * Finalize log entry with its continuation lines. They are kept as read and only split into
+     * context and stack trace, and scanned for additionalData, when one of those is asked for.
      */
-    private static void finalizeLogEntry(LaravelLog entry, String additionalContent) {
-        if (additionalContent.trim().isEmpty()) {
-            return;
+    public static void finalizeLogEntry(LaravelLog entry, String additionalContent) {
+        if (!additionalContent.trim().isEmpty()) {
+            entry.setDetails(additionalContent);
         }
+        entry.seal();
+    }
 
-        // Split content to find context and stack trace
-        String[] lines = additionalContent.split("\n");
+    /**
+     * Context and stack trace of an entry's continuation lines: everything from the first
+     * stack frame on is the stack trace, the lines before it the context
+     */
+    static String[] splitDetails(String details) {
         StringBuilder contextBuilder = new StringBuilder();
         StringBuilder stackTraceBuilder = new StringBuilder();
-
         boolean inStackTrace = false;
 
-        for (String line : lines) {
+        int start = 0;
+        while (start < details.length()) {
+            int end = details.indexOf('\n', start);
+            if (end < 0) {
+                end = details.length();
+            }
+            String line = details.substring(start, end);
+            start = end + 1;
             if (line.trim().isEmpty()) continue;
 
             // Check if this line starts a stack trace
-            if (line.contains("Stack trace:") || line.contains("#0 ") || line.matches("^#\\d+.*")) {
+            if (!inStackTrace && (line.contains("Stack trace:") || line.contains("#0 ") || LaravelLogHeader.isStackFrame(line))) {
                 inStackTrace = true;
             }
 
@@ -111,42 +330,30 @@ public class LaravelLogParser {
                 contextBuilder.append(line).append("\n");
             }
         }
-
-        entry.setContext(contextBuilder.toString().trim());
-        entry.setStackTrace(stackTraceBuilder.toString().trim());
-
-        // Parse additional structured data (if any)
-        parseAdditionalData(entry, contextBuilder.toString());
+        return new String[]{contextBuilder.toString().trim(), stackTraceBuilder.toString().trim()};
     }
 
     /**
-     * Parse additional structured data from context
+     * Structured data in a context: "key: value" pairs and the outermost {...} as json_data
      */
-    private static void parseAdditionalData(LaravelLog entry, String context) {
+    static Map<String, String> additionalData(String context) {
+        if (context == null || context.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> data = new HashMap<>();
         // Look for key-value pairs in the context
-        Pattern keyValuePattern = Pattern.compile("(\\w+):\\s*([^\\n]+)");
-        Matcher matcher = keyValuePattern.matcher(context);
-
+        Matcher matcher = KEY_VALUE_PATTERN.matcher(context);
         while (matcher.find()) {
-            String key = matcher.group(1);
-            String value = matcher.group(2).trim();
-            entry.addAdditionalData(key, value);
-        }
-
-        // Parse JSON-like structures if present
-        if (context.contains("{") && context.contains("}")) {
-            try {
-                // Extract JSON-like content (basic parsing)
-                int startBrace = context.indexOf('{');
-                int endBrace = context.lastIndexOf('}');
-                if (startBrace != -1 && endBrace != -1 && endBrace > startBrace) {
-                    String jsonLike = context.substring(startBrace, endBrace + 1);
-                    entry.addAdditionalData("json_data", jsonLike);
-                }
-            } catch (Exception e) {
-                // Ignore JSON parsing errors
-            }
+            data.put(matcher.group(1), matcher.group(2).trim());
+        }
+
+        // Extract JSON-like content (basic parsing)
+        int startBrace = context.indexOf('{');
+        int endBrace = context.lastIndexOf('}');
+        if (startBrace != -1 && endBrace > startBrace) {
+            data.put("json_data", context.substring(startBrace, endBrace + 1));
         }
+        return data;
     }
 
     /**
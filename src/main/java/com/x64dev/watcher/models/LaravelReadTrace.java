@@ -0,0 +1,19 @@
+package com.x64dev.watcher.models;
+
+import java.time.Instant;
+
+/**
+ * Stamps of one tail read in tracing mode, in epoch microseconds: when the
+ * file was last written (its mtime, so the last write of a burst, and on
+ * Linux it ticks with the kernel's coarse clock, a few ms), when the change
+ * was detected and when its entries were parsed. Source is "inotify" for a
+ * file event and "poll" for the fallback poller.
+ */
+public record LaravelReadTrace(String site, String source, long writtenMicros, long detectedMicros,
+                               long parsedMicros) {
+
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+    }
+}
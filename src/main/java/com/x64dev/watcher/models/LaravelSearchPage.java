@@ -0,0 +1,15 @@
+package com.x64dev.watcher.models;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LaravelSearchPage {
+    // Oldest first, like a page of history
+    private List<LaravelLog> logs;
+    // Fetches the matches before this page, null on the last one
+    private String cursor;
+    // Matches across the whole history
+    private int total;
+}
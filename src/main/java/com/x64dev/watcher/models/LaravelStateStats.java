@@ -11,5 +11,7 @@ public class LaravelStateStats {
     private int warningsCount;
     private int infoCount;
     private int debugCount;
+    // Newest entries only, older ones are fetched page by page with the cursor
     private List<LaravelLog> logs;
+    private String cursor;
 }
@@ -5,6 +5,11 @@ import java.util.List;
 public interface LogEventListener {
     void onNewLogEntry(LaravelLog logEntry);
     void onLogEntriesAdded(List<LaravelLog> logEntries);
+
+    // Same, with the read's stamps in tracing mode, otherwise trace is null
+    default void onLogEntriesAdded(List<LaravelLog> logEntries, LaravelReadTrace trace) {
+        onLogEntriesAdded(logEntries);
+    }
     void onFileWatchError(Exception error);
     void onFileWatchStarted(String filePath);
     void onFileWatchStopped();
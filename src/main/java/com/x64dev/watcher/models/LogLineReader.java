@@ -0,0 +1,143 @@
+package com.x64dev.watcher.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 lines from a FileChannel through one reusable buffer.
+ * Lines are split on the raw '\n' byte before decoding, so a multi-byte
+ * character can never be cut in half by a buffer boundary. Memory is the
+ * read buffer plus the longest line seen. Any other channel, such as a
+ * decompressing stream, is read sequentially and cannot seek.
+ */
+public class LogLineReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // Give back the line buffer after an unusually long line
+    private static final int LINE_BUFFER_RETAIN = 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    // Null for a sequential channel
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer;
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    // Offset just past the last line handed out
+    private long position;
+    // Offset of the first byte of the last line handed out
+    private long lineStart;
+    // Offset of the next byte to pull from the channel
+    private long readPosition;
+
+    public LogLineReader(FileChannel channel, long position) {
+        this(channel, position, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LogLineReader(FileChannel channel, long position, int bufferSize) {
+        this((ReadableByteChannel) channel, position, bufferSize);
+    }
+
+    /**
+     * Reader over a sequential channel whose next byte is at the given offset
+     */
+    public LogLineReader(ReadableByteChannel channel, long position, int bufferSize) {
+        this.channel = channel;
+        this.fileChannel = channel instanceof FileChannel file ? file : null;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        reposition(position);
+    }
+
+    /**
+     * Next complete line, or null when the channel has no more full lines.
+     * With flushPartial a trailing line without '\n' is returned at EOF,
+     * otherwise it is kept back until its newline arrives.
+     */
+    public String readLine(boolean flushPartial) throws IOException {
+        while (true) {
+            if (buffer.hasRemaining()) {
+                int start = buffer.position();
+                int limit = buffer.limit();
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                append(start, end - start);
+                if (end < limit) {
+                    buffer.position(end + 1);
+                    return finishLine(true);
+                }
+                buffer.position(limit);
+            }
+
+            buffer.clear();
+            int read = fileChannel != null ? fileChannel.read(buffer, readPosition) : channel.read(buffer);
+            buffer.flip();
+            if (read <= 0) {
+                return flushPartial && lineLength > 0 ? finishLine(false) : null;
+            }
+            readPosition += read;
+        }
+    }
+
+    // Drop anything buffered and continue from the given offset
+    public void seek(long offset) {
+        if (fileChannel == null) {
+            throw new UnsupportedOperationException("Sequential channels cannot seek");
+        }
+        reposition(offset);
+    }
+
+    private void reposition(long offset) {
+        position = offset;
+        lineStart = offset;
+        readPosition = offset;
+        lineLength = 0;
+        buffer.clear().flip();
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public long lineStart() {
+        return lineStart;
+    }
+
+    // Bytes held back as an unfinished line
+    public int pendingBytes() {
+        return lineLength;
+    }
+
+    private void append(int from, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (lineLength + length > line.length) {
+            byte[] grown = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        buffer.get(from, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private String finishLine(boolean newline) {
+        int length = lineLength;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        String text = new String(line, 0, length, StandardCharsets.UTF_8);
+        lineStart = position;
+        position += lineLength + (newline ? 1 : 0);
+        lineLength = 0;
+        if (line.length > LINE_BUFFER_RETAIN) {
+            line = new byte[256];
+        }
+        return text;
+    }
+}
@@ -0,0 +1,118 @@
+package com.x64dev.watcher.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds a site's log files: laravel.log from the single channel and
+ * laravel-yyyy-MM-dd.log from the daily channel, older days possibly gzipped.
+ */
+public final class LaravelLogFiles {
+
+    public static final String SINGLE_FILE = "laravel.log";
+    private static final Pattern DAILY_FILE = Pattern.compile("laravel-(\\d{4}-\\d{2}-\\d{2})\\.log(\\.gz)?");
+
+    private LaravelLogFiles() {
+    }
+
+    public static boolean isLogFile(String name) {
+        return SINGLE_FILE.equals(name) || DAILY_FILE.matcher(name).matches();
+    }
+
+    /**
+     * Log files of a site oldest first, the one being written to last. A day that exists both
+     * plain and gzipped, while it is being compressed, is only listed plain.
+     */
+    public static List<Path> discover(Path siteDir) throws IOException {
+        Map<LocalDate, Path> daily = new HashMap<>();
+        Path single = null;
+        if (!Files.isDirectory(siteDir)) {
+            return List.of();
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(siteDir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (SINGLE_FILE.equals(name)) {
+                    single = path;
+                    continue;
+                }
+                LocalDate date = dailyDate(path);
+                if (date != null) {
+                    daily.merge(date, path,
+                            (a, b) -> a.getFileName().toString().endsWith(".gz") ? b : a);
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>(daily.values());
+        if (single != null) {
+            files.add(single);
+        }
+        // laravel.log sorts by the day it was last written, after a daily file of the same day
+        Map<Path, LocalDate> dates = new HashMap<>();
+        for (Path file : files) {
+            dates.put(file, dateOf(file));
+        }
+        files.sort(Comparator.comparing((Path file) -> dates.get(file))
+                .thenComparing(file -> SINGLE_FILE.equals(file.getFileName().toString())));
+        return files;
+    }
+
+    /**
+     * The day of a daily file, or the day a laravel.log was last written
+     */
+    public static LocalDate dateOf(Path file) throws IOException {
+        LocalDate date = dailyDate(file);
+        if (date != null) {
+            return date;
+        }
+        return LocalDate.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+    }
+
+    /**
+     * The day in a daily file's name, null for laravel.log
+     */
+    public static LocalDate dailyDate(Path file) {
+        Matcher matcher = DAILY_FILE.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(matcher.group(1));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static boolean isDaily(Path file) {
+        return dailyDate(file) != null;
+    }
+
+    public static Path dailyFile(Path siteDir, LocalDate date) {
+        return siteDir.resolve("laravel-" + date + ".log");
+    }
+
+    /**
+     * The file, or its gzipped copy once it has been compressed away
+     */
+    public static Path resolveArchived(Path file) {
+        if (!Files.exists(file)) {
+            Path gzipped = file.resolveSibling(file.getFileName() + ".gz");
+            if (Files.exists(gzipped)) {
+                return gzipped;
+            }
+        }
+        return file;
+    }
+}
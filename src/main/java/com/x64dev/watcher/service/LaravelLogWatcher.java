@@ -1,45 +1,136 @@
 package com.x64dev.watcher.service;
 
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelBufferUsage;
 import com.x64dev.watcher.models.LaravelLog;
-import com.x64dev.watcher.models.LogEventAdapter;
+import com.x64dev.watcher.models.LaravelLogAssembler;
+import com.x64dev.watcher.models.LaravelLogPage;
+import com.x64dev.watcher.models.LaravelLogParser;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import com.x64dev.watcher.models.LaravelSearchPage;
+import com.x64dev.watcher.models.LaravelStateStats;
 import com.x64dev.watcher.models.LogEventListener;
+import com.x64dev.watcher.models.LogLineReader;
+import com.x64dev.watcher.service.LaravelWatchEngine.ChangeSource;
+import lombok.extern.slf4j.Slf4j;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import java.text.MessageFormat;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tail state of one site's logs. Change detection and threads belong to
+ * the shared LaravelWatchEngine, which calls back into this class to read.
+ *
+ * A site has laravel.log or one laravel-yyyy-MM-dd.log per day, older days
+ * possibly gzipped. Every file is a segment, the newest one is tailed, and
+ * entry offsets are (segment number << SEGMENT_SHIFT) + the offset in that
+ * file. The number comes from the file's day, not its place in the listing,
+ * so cursors, search hits and resume offsets keep pointing at the same file
+ * after older days are deleted and across restarts.
+ *
+ * With a sidecar directory every file gets a LaravelSidecarIndex, so a restart
+ * restores counts and offsets from it and only parses what it doesn't cover.
+ */
+@Slf4j
 public class LaravelLogWatcher {
-    private static final Pattern LOG_PATTERN = Pattern.compile(
-            "\\[(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\]\\s+(\\w+\\.\\w+):\\s+(.+)"
-    );
-
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    private final String logFilePath;
+    // 1 TB per file before offsets of two segments could collide
+    static final int SEGMENT_SHIFT = 40;
+    private static final long LOCAL_MASK = (1L << SEGMENT_SHIFT) - 1;
+    // laravel.log while it is the file being written, above every day so offsets stay positive
+    private static final int SINGLE_SEGMENT = (1 << (63 - SEGMENT_SHIFT)) - 1;
+    // Yesterday's file has to be quiet this long before tailing moves to today's
+    private static final long DAY_SWITCH_GRACE_MS = 2000;
+
+    private final String site;
+    private final Path siteDir;
+    // Every file of the site oldest first with ascending numbers, the last one is tailed
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
     private final List<LogEventListener> listeners;
-    private final ExecutorService executorService;
-    private final ScheduledExecutorService scheduledExecutor;
+    private final LaravelWatchEngine engine;
+    private final Duration clockSkew;
+    private final int parseParallelism;
+    // The last entry read stays open for continuation lines written later, until the next
+    // header, a day switch or this long without new lines
+    private final long openEntryGraceMs;
 
-    private WatchService watchService;
     private volatile boolean isWatching = false;
-    private long lastFilePosition = 0;
-    private String incompleteLogEntry = "";
+    // Set while a read is queued on the engine, so a burst of events queues one read
+    private final AtomicBoolean readScheduled = new AtomicBoolean();
+    // When the file was last looked at, by an event or by the fallback poller
+    private volatile long lastCheckMillis;
+    // Events for this file may have been lost (overflow, directory key invalidated)
+    private volatile boolean suspect;
+    // Read without the lock by the tail lag gauge
+    private volatile long lastFilePosition = 0;
     private final Object positionLock = new Object();
-
-    public LaravelLogWatcher(String site) {
-        this.logFilePath = System.getenv("SITES_BASE_URI") + "/" + site + "/laravel.log";
+    // Offset of the entry still open for continuation lines, or -1. Read without the lock.
+    private volatile long openEntryOffset = -1;
+    // When a read last found new lines
+    private volatile long lastGrowthMillis;
+    // Offsets of the live file below this were handed out before it was truncated or replaced,
+    // they name other entries now. Kept in the live sidecar across restarts, written under the position lock.
+    private volatile long staleBelow;
+    // Bumped after the tail starts over in another file or at the start of this one, so a replay
+    // parsed meanwhile is known to be off. Written under the position lock.
+    private volatile int tailRestarts;
+    private final LaravelStatsAccumulator stats;
+
+    // Entries completed by the current read, handed out once the read is done
+    private final List<LaravelLog> pendingEntries = new ArrayList<>();
+    private final LaravelLogAssembler assembler = new LaravelLogAssembler(pendingEntries::add);
+
+    // Kept open across change events, reopened on rotation
+    private FileChannel tailChannel;
+    private LogLineReader tailReader;
+    private Object tailFileKey;
+
+    // Where this site's sidecars go, null when they are off
+    private final Path sidecarDir;
+    // Sidecar of the tailed file, appended to as entries are read
+    private LaravelSidecarIndex liveSidecar;
+    // Some entries of the last load came from sidecars, without their text
+    private boolean restoredWithoutText;
+
+    // What the engine saw when it queued the pending read, and when in tracing mode
+    private volatile ChangeSource scheduledSource = ChangeSource.EVENT;
+    private volatile long scheduledMicros;
+    // Same for the read in progress, guarded by the position lock
+    private ChangeSource readSource = ChangeSource.EVENT;
+    private long readDetectedMicros;
+    private final boolean tracing;
+    private final WatcherMetrics watcherMetrics;
+    // Registered on start rather than in the constructor, the gauge holds on to this watcher
+    private WatcherMetrics.Site metrics;
+
+    public LaravelLogWatcher(String site, WatcherProperties properties, LaravelWatchEngine engine,
+                             WatcherMetrics metrics) {
+        this.site = site;
+        this.siteDir = Paths.get(System.getenv("SITES_BASE_URI"), site);
+        this.stats = new LaravelStatsAccumulator(properties.getSnapshotSize(),
+                properties.getBufferEntries(), properties.getBufferBytes(), properties.isSearchIndex());
         this.listeners = new CopyOnWriteArrayList<>();
-        this.executorService = Executors.newCachedThreadPool();
-        this.scheduledExecutor = Executors.newScheduledThreadPool(1);
+        this.engine = engine;
+        this.clockSkew = Duration.ofMillis(properties.getClockSkewMs());
+        this.parseParallelism = properties.getParseParallelism();
+        this.openEntryGraceMs = properties.getOpenEntryGraceMs();
+        String sidecars = properties.getSidecarDir();
+        this.sidecarDir = sidecars == null || sidecars.isBlank() ? null : Paths.get(sidecars, site);
+        this.tracing = properties.isTracing();
+        this.watcherMetrics = metrics;
     }
 
     // Add listener
@@ -47,53 +138,40 @@ public class LaravelLogWatcher {
         listeners.add(listener);
     }
 
+    // Run an action with the current stats while no entries are being dispatched,
+    // so a listener registered in it misses or repeats nothing
+    public void withStats(java.util.function.Consumer<LaravelStateStats> action) {
+        synchronized (positionLock) {
+            action.accept(stats.snapshot());
+        }
+    }
+
     // Remove listener
     public void removeListener(LogEventListener listener) {
         listeners.remove(listener);
     }
 
-    public void removeListenerBySession(String sessionId) {
-        for(LogEventListener listener : listeners){
-            LogEventAdapter adapter = (LogEventAdapter) listener;
-            if (adapter.getSession().getId().equals(sessionId)){
-                listeners.remove(listener);
-                return;
-            }
-        }
-    }
     // Start watching the log file
     public void startWatching() throws IOException {
         if (isWatching) {
             return;
         }
 
-        Path logPath = Paths.get(logFilePath);
-        Path parentDir = logPath.getParent();
-
-        if (parentDir == null) {
-            throw new IOException("Cannot determine parent directory for: " + logFilePath);
-        }
-
         // Create directory if it doesn't exist
-        Files.createDirectories(parentDir);
-
-        // Initialize file position
-        initializeFilePosition();
+        Files.createDirectories(siteDir);
+        metrics = watcherMetrics.site(site, this, LaravelLogWatcher::tailLag);
 
-        // Create watch service
-        watchService = FileSystems.getDefault().newWatchService();
-        parentDir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
+        // Build the stats once and position at the end of what was parsed
+        loadHistory();
 
         isWatching = true;
+        lastCheckMillis = System.currentTimeMillis();
 
-        // Start file watcher thread
-        executorService.submit(this::watchFileChanges);
-
-        // Start periodic checker (fallback mechanism)
-        scheduledExecutor.scheduleAtFixedRate(this::checkForNewContent, 1, 1, TimeUnit.SECONDS);
+        // Events and the fallback poll come from the shared engine
+        engine.register(this);
 
         // Notify listeners
-        notifyListeners(listener -> listener.onFileWatchStarted(logFilePath));
+        notifyListeners(listener -> listener.onFileWatchStarted(siteDir.toString()));
     }
 
     // Stop watching
@@ -103,275 +181,523 @@ public class LaravelLogWatcher {
         }
 
         isWatching = false;
+        engine.unregister(this);
 
-        try {
-            if (watchService != null) {
-                watchService.close();
-            }
-        } catch (IOException e) {
-            notifyListeners(listener -> listener.onFileWatchError(e));
-        }
-
-        executorService.shutdown();
-        scheduledExecutor.shutdown();
-
-        try {
-            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-            if (!scheduledExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduledExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        synchronized (positionLock) {
+            closeTail();
+            closeSidecar();
         }
 
         notifyListeners(listener -> listener.onFileWatchStopped());
     }
 
-    // Initialize file position to end of file
-    private void initializeFilePosition() {
+    // Load the existing files once to seed the stats, then tail the newest from its end
+    private void loadHistory() {
+        long started = System.nanoTime();
         try {
-            File logFile = new File(logFilePath);
-            if (logFile.exists()) {
-                synchronized (positionLock) {
-                    lastFilePosition = logFile.length();
+            List<Path> files = LaravelLogFiles.discover(siteDir);
+            pruneSidecars(files);
+            synchronized (positionLock) {
+                closeTail();
+                closeSidecar();
+                segments.clear();
+                stats.reset();
+                lastFilePosition = 0;
+                openEntryOffset = -1;
+                restoredWithoutText = false;
+                for (int i = 0; i < files.size(); i++) {
+                    boolean newest = i == files.size() - 1;
+                    segments.add(Segment.of(files.get(i), newest));
+                    lastFilePosition = loadSegment(segments.size() - 1, newest);
+                }
+                staleBelow = liveSidecar == null ? 0 : liveBase() + liveSidecar.staleBelow();
+                Path live = livePath();
+                if (live != null && !LaravelLogParser.isGzip(live.toString())) {
+                    openTail(live, Files.readAttributes(live, BasicFileAttributes.class).fileKey());
+                }
+                if (restoredWithoutText) {
+                    restoreText();
                 }
             }
+            metrics.loaded(System.nanoTime() - started);
         } catch (Exception e) {
             notifyListeners(listener -> listener.onFileWatchError(e));
         }
     }
 
-    // Watch for file changes
-    private void watchFileChanges() {
+    // Load a segment from its sidecar as far as that goes and parse only the rest, which is
+    // added to the sidecar. The newest segment's sidecar stays open for tailing, and a partial
+    // last line of it is left to the tail. Returns the bytes consumed.
+    private long loadSegment(int index, boolean newest) {
+        Path file = segments.get(index).file();
+        boolean live = newest && !LaravelLogParser.isGzip(file.toString());
+        LaravelSidecarIndex sidecar = openSidecar(file);
+        if (sidecar == null) {
+            return parseSegment(index, live);
+        }
+        long base = segments.get(index).base();
+        boolean keepOpen = live;
         try {
-            while (isWatching) {
-                WatchKey key = watchService.take();
-
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    WatchEvent.Kind<?> kind = event.kind();
-
-                    if (kind == StandardWatchEventKinds.OVERFLOW) {
-                        continue;
-                    }
-
-                    Path changedFile = (Path) event.context();
-                    Path logPath = Paths.get(logFilePath);
-
-                    if (changedFile.equals(logPath.getFileName())) {
-                        processFileChange();
-                    }
-                }
-
-                if (!key.reset()) {
-                    break;
+            sidecar.forEach((offset, epochSecond, severity, length) -> stats.addIndexed(base + offset, severity));
+            restoredWithoutText |= sidecar.records() > 0;
+            long[] parsed = new long[1];
+            java.util.function.Consumer<LaravelLog> consumer = entry -> {
+                entry.setOffset(base + entry.getOffset());
+                stats.add(entry);
+                parsed[0]++;
+                try {
+                    sidecar.add(entry, base);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            };
+            long indexed = sidecar.indexedSize();
+            // An indexed archive doesn't change, there is nothing past the records to inflate
+            long consumed = indexed == 0
+                    ? LaravelLogParser.parseLogFileParallel(file.toString(), parseParallelism, !live, consumer)
+                    : LaravelLogParser.isGzip(file.toString())
+                    ? indexed
+                    : LaravelLogParser.parseRange(file.toString(), indexed, Long.MAX_VALUE, !live, consumer);
+            sidecar.commit(consumed);
+            metrics.parsed(consumed - indexed, parsed[0]);
+            if (keepOpen) {
+                liveSidecar = sidecar;
+            }
+            return consumed;
+        } catch (IOException | UncheckedIOException e) {
+            // A broken sidecar only costs the parse it would have saved
+            log.warn("Sidecar of {} unusable, parsing it: {}", file, e.getMessage());
+            keepOpen = false;
+            stats.reset();
+            restoredWithoutText = false;
+            for (int i = 0; i < index; i++) {
+                parseSegment(i, false);
+            }
+            return parseSegment(index, live);
+        } finally {
+            if (!keepOpen) {
+                closeQuietly(sidecar);
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            notifyListeners(listener -> listener.onFileWatchError(e));
         }
     }
 
-    // Periodic check for new content (fallback)
-    private void checkForNewContent() {
-        if (isWatching) {
-            processFileChange();
+    // Parse a whole segment into the stats, returns the bytes consumed
+    private long parseSegment(int index, boolean live) {
+        long base = segments.get(index).base();
+        long[] parsed = new long[1];
+        String file = segments.get(index).file().toString();
+        long consumed = LaravelLogParser.parseLogFileParallel(file, parseParallelism, !live, entry -> {
+            entry.setOffset(base + entry.getOffset());
+            stats.add(entry);
+            parsed[0]++;
+        });
+        metrics.parsed(consumed, parsed[0]);
+        return consumed;
+    }
+
+    // Entries restored from sidecars have no text: parse the newest back into the buffer
+    // and rebuild the search index in the background
+    private void restoreText() {
+        Path live = livePath();
+        long end = live == null || LaravelLogParser.isGzip(live.toString()) ? Long.MAX_VALUE : liveBase() + lastFilePosition;
+        long start = stats.bufferStart();
+        if (start >= 0) {
+            List<LaravelLog> newest = new ArrayList<>();
+            parseRange(start, end, newest::add);
+            stats.refillBuffer(newest);
+        }
+        LaravelStatsAccumulator.IndexRebuild rebuild = stats.startIndexRebuild();
+        if (rebuild != null) {
+            engine.runInBackground(() -> rebuildIndex(rebuild, end));
         }
+        restoredWithoutText = false;
     }
 
-    // Process file changes
-    private void processFileChange() {
-        try {
-            File logFile = new File(logFilePath);
-            if (!logFile.exists()) {
-                return;
+    // Until this is done search only finds entries read since the load
+    private void rebuildIndex(LaravelStatsAccumulator.IndexRebuild rebuild, long end) {
+        LaravelSearchIndex rebuilt = new LaravelSearchIndex();
+        int[] ordinal = {0};
+        parseRange(0, end, entry -> {
+            if (ordinal[0] < rebuild.count()) {
+                rebuilt.add(ordinal[0]++, entry);
             }
+        });
+        if (ordinal[0] != rebuild.count() || !stats.finishIndexRebuild(rebuild, rebuilt)) {
+            log.warn("Search index of {} changed while it was rebuilt, it only covers new entries", siteDir);
+        }
+    }
 
-            long currentFileSize = logFile.length();
+    // Null when sidecars are off or this one can't be opened
+    private LaravelSidecarIndex openSidecar(Path file) {
+        if (sidecarDir == null) {
+            return null;
+        }
+        try {
+            return LaravelSidecarIndex.open(sidecarDir.resolve(file.getFileName() + ".idx"), file);
+        } catch (IOException e) {
+            log.warn("Cannot open sidecar of {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
 
-            synchronized (positionLock) {
-                if (currentFileSize > lastFilePosition) {
-                    readNewContent(currentFileSize);
-                } else if (currentFileSize < lastFilePosition) {
-                    // File was truncated or rotated
-                    lastFilePosition = 0;
-                    incompleteLogEntry = "";
-                    readNewContent(currentFileSize);
-                }
+    // A fresh sidecar for the tailed file, which is about to be read from its start
+    private void startLiveSidecar() {
+        closeSidecar();
+        Path live = livePath();
+        if (live == null || LaravelLogParser.isGzip(live.toString())) {
+            return;
+        }
+        liveSidecar = openSidecar(live);
+        long stale = staleBelow >>> SEGMENT_SHIFT == liveBase() >>> SEGMENT_SHIFT ? staleBelow & LOCAL_MASK : 0;
+        if (liveSidecar != null && (liveSidecar.records() > 0 || liveSidecar.staleBelow() < stale)) {
+            try {
+                liveSidecar.reset(stale);
+            } catch (IOException e) {
+                log.warn("Cannot reset sidecar of {}: {}", live, e.getMessage());
+                closeSidecar();
             }
-        } catch (Exception e) {
-            notifyListeners(listener -> listener.onFileWatchError(e));
         }
     }
 
-    // Read new content from file
-    private void readNewContent(long currentFileSize) throws IOException {
-        synchronized (positionLock) {
-            try (RandomAccessFile raf = new RandomAccessFile(logFilePath, "r")) {
-                raf.seek(lastFilePosition);
+    private void closeSidecar() {
+        closeQuietly(liveSidecar);
+        liveSidecar = null;
+    }
 
-                StringBuilder newContent = new StringBuilder();
-                String line;
+    private static void closeQuietly(LaravelSidecarIndex sidecar) {
+        if (sidecar == null) {
+            return;
+        }
+        try {
+            sidecar.close();
+        } catch (IOException e) {
+            log.warn("Cannot close sidecar: {}", e.getMessage());
+        }
+    }
 
-                while ((line = raf.readLine()) != null) {
-                    newContent.append(line).append("\n");
+    // Delete sidecars of files that are gone, such as a day's plain file once it was gzipped
+    private void pruneSidecars(List<Path> files) {
+        if (sidecarDir == null || !Files.isDirectory(sidecarDir)) {
+            return;
+        }
+        List<String> names = files.stream().map(file -> file.getFileName() + ".idx").toList();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sidecarDir, "*.idx")) {
+            for (Path sidecar : stream) {
+                if (!names.contains(sidecar.getFileName().toString())) {
+                    Files.deleteIfExists(sidecar);
                 }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot prune sidecars in {}: {}", sidecarDir, e.getMessage());
+        }
+    }
 
-                if (newContent.length() > 0) {
-                    String contentToProcess = incompleteLogEntry + newContent.toString();
-                    List<LaravelLog> newEntries = parseNewLogEntries(contentToProcess);
+    // The file being tailed, null before the site has logged anything
+    private Path livePath() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1).file();
+    }
 
-                    if (!newEntries.isEmpty()) {
-                        // Notify listeners
-                        notifyListeners(listener -> listener.onLogEntriesAdded(newEntries));
+    private long liveBase() {
+        return segments.get(segments.size() - 1).base();
+    }
 
-                        // Notify for individual entries
-                        for (LaravelLog entry : newEntries) {
-                            notifyListeners(listener -> listener.onNewLogEntry(entry));
-                        }
-                    }
-                }
+    // Position of the segment an offset belongs to, or -(insertion point) - 1 when there is none
+    private static int segmentIndex(List<Segment> segments, long offset) {
+        int number = (int) (offset >>> SEGMENT_SHIFT);
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int current = segments.get(mid).number();
+            if (current < number) {
+                low = mid + 1;
+            } else if (current > number) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
 
-                lastFilePosition = currentFileSize;
+    /**
+     * A file of the site and its number in entry offsets: twice the epoch day of a daily file, and
+     * for laravel.log SINGLE_SEGMENT while it is the newest file, otherwise the odd number after the
+     * day it was last written so it sorts where discover() lists it
+     */
+    private record Segment(Path file, int number) {
+        static Segment of(Path file, boolean newest) throws IOException {
+            LocalDate date = LaravelLogFiles.dailyDate(file);
+            if (date != null) {
+                return new Segment(file, (int) date.toEpochDay() * 2);
             }
+            return new Segment(file, newest ? SINGLE_SEGMENT : (int) LaravelLogFiles.dateOf(file).toEpochDay() * 2 + 1);
+        }
+
+        long base() {
+            return (long) number << SEGMENT_SHIFT;
         }
     }
 
-    // Parse new log entries from content
-    private List<LaravelLog> parseNewLogEntries(String content) {
-        List<LaravelLog> entries = new ArrayList<>();
-        String[] lines = content.split("\n");
+    // Bytes appended to the tailed file that haven't been read yet
+    private double tailLag() {
+        Path live = livePath();
+        if (live == null || LaravelLogParser.isGzip(live.toString())) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Files.size(live) - lastFilePosition);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
 
-        LaravelLog currentEntry = null;
-        StringBuilder multiLineContent = new StringBuilder();
-        StringBuilder remainingContent = new StringBuilder();
+    Path getSiteDir() {
+        return siteDir;
+    }
 
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
-            Matcher matcher = LOG_PATTERN.matcher(line);
+    // Claim the right to queue a read, false if one is already queued
+    boolean scheduleRead(ChangeSource source) {
+        if (!readScheduled.compareAndSet(false, true)) {
+            return false;
+        }
+        scheduledSource = source;
+        scheduledMicros = tracing ? LaravelReadTrace.nowMicros() : 0;
+        return true;
+    }
 
-            if (matcher.find()) {
-                // Save previous entry if exists
-                if (currentEntry != null) {
-                    finalizeLogEntry(currentEntry, multiLineContent.toString());
-                    entries.add(currentEntry);
-                }
+    // Run a read queued by the engine
+    void runScheduledRead() {
+        ChangeSource source = scheduledSource;
+        long detectedMicros = scheduledMicros;
+        readScheduled.set(false);
+        if (isWatching) {
+            processFileChange(source, detectedMicros);
+        }
+    }
 
-                // Create new entry
-                currentEntry = new LaravelLog();
+    // The queued read never made it to a thread, let the poller try again
+    void cancelScheduledRead() {
+        readScheduled.set(false);
+        suspect = true;
+    }
 
-                // Parse timestamp
-                String timestampStr = matcher.group(1);
-                currentEntry.setTimestamp(LocalDateTime.parse(timestampStr, DATE_FORMATTER));
+    void markSuspect() {
+        suspect = true;
+    }
 
-                // Parse level
-                String levelStr = matcher.group(2);
-                String[] levelParts = levelStr.split("\\.");
-                currentEntry.setLevel(levelParts.length > 1 ? levelParts[1] : levelStr);
+    // Whether the fallback poller should look at this file: events may have been missed,
+    // none arrived for a while or an open entry went quiet
+    boolean needsPoll(long nowMillis, long idleMillis) {
+        return isWatching && (suspect || nowMillis - lastCheckMillis >= idleMillis
+                || (openEntryOffset >= 0 && nowMillis - lastGrowthMillis >= openEntryGraceMs));
+    }
 
-                // Parse message
-                String message = matcher.group(3);
-                currentEntry.setMessage(message);
+    // Process file changes
+    private void processFileChange(ChangeSource source, long detectedMicros) {
+        lastCheckMillis = System.currentTimeMillis();
+        suspect = false;
+        // Only this read moves the position, so comparing afterwards tells whether a poll found anything
+        long position = lastFilePosition;
+        int segmentCount = segments.size();
+        try {
+            synchronized (positionLock) {
+                readSource = source;
+                readDetectedMicros = detectedMicros;
+                Path live = livePath();
+                if (live == null || LaravelLogParser.isGzip(live.toString())) {
+                    // Nothing tailable yet, see whether a file turned up
+                    adoptNewFile();
+                } else if (LaravelLogFiles.isDaily(live)) {
+                    switchDay(live);
+                }
+                live = livePath();
+                if (live == null || !Files.exists(live)) {
+                    return;
+                }
 
-                // Reset multiline content
-                multiLineContent = new StringBuilder();
+                BasicFileAttributes attributes = Files.readAttributes(live, BasicFileAttributes.class);
+                long currentFileSize = attributes.size();
 
-            } else if (currentEntry != null) {
-                // This is a continuation line
-                multiLineContent.append(line).append("\n");
-            } else {
-                // This might be incomplete content from previous read
-                remainingContent.append(line).append("\n");
+                boolean replaced = tailFileKey != null && !tailFileKey.equals(attributes.fileKey());
+                if (replaced || currentFileSize < lastFilePosition) {
+                    // File was truncated or rotated, keep the older segments and start this one over
+                    closeTail();
+                    boolean sameFile = staleBelow >>> SEGMENT_SHIFT == liveBase() >>> SEGMENT_SHIFT;
+                    staleBelow = liveBase() + Math.max(lastFilePosition, sameFile ? staleBelow & LOCAL_MASK : 0);
+                    lastFilePosition = 0;
+                    tailRestarts++;
+                    assembler.reset();
+                    openEntryOffset = -1;
+                    stats.truncate(liveBase());
+                    startLiveSidecar();
+                }
+                if (tailReader == null) {
+                    openTail(live, attributes.fileKey());
+                }
+                if (currentFileSize > lastFilePosition) {
+                    readNewContent(false);
+                }
+                finishQuietEntry();
             }
-        }
-
-        // Handle the last entry
-        if (currentEntry != null) {
-            // Check if this entry seems complete (next line doesn't start with timestamp)
-            if (content.endsWith("\n") && !content.trim().isEmpty()) {
-                finalizeLogEntry(currentEntry, multiLineContent.toString());
-                entries.add(currentEntry);
-                incompleteLogEntry = "";
-            } else {
-                // This entry might be incomplete, store it for next read
-                incompleteLogEntry = reconstructLogEntry(currentEntry, multiLineContent.toString());
+        } catch (Exception e) {
+            notifyListeners(listener -> listener.onFileWatchError(e));
+        } finally {
+            if (source == ChangeSource.POLL) {
+                metrics.polled(lastFilePosition != position || segments.size() != segmentCount);
             }
-        } else {
-            // No new complete entries, store remaining content
-            incompleteLogEntry = remainingContent.toString();
         }
-
-        return entries;
     }
 
-    // Reconstruct log entry as string for incomplete entries
-    private String reconstructLogEntry(LaravelLog entry, String additionalContent) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("[").append(entry.getTimestamp().format(DATE_FORMATTER)).append("] ");
-        sb.append("local.").append(entry.getLevel()).append(": ");
-        sb.append(entry.getMessage()).append("\n");
-        sb.append(additionalContent);
-        return sb.toString();
-    }
-
-    // Finalize log entry (reused from original parser)
-    private void finalizeLogEntry(LaravelLog entry, String additionalContent) {
-        if (additionalContent.trim().isEmpty()) {
+    // First plain file of a site, or a new one after the newest was an archive
+    private void adoptNewFile() throws IOException {
+        List<Path> files = LaravelLogFiles.discover(siteDir);
+        if (files.isEmpty()) {
             return;
         }
+        Path newest = files.get(files.size() - 1);
+        if (!newest.equals(livePath()) && !LaravelLogParser.isGzip(newest.toString())) {
+            segments.add(Segment.of(newest, true));
+            lastFilePosition = 0;
+            tailRestarts++;
+            startLiveSidecar();
+        }
+    }
 
-        String[] lines = additionalContent.split("\n");
-        StringBuilder contextBuilder = new StringBuilder();
-        StringBuilder stackTraceBuilder = new StringBuilder();
-
-        boolean inStackTrace = false;
-
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
+    // Move tailing to the next day's file once it exists and the current one has gone quiet.
+    // The rest of the old file, even an unterminated last line, is read first so nothing is lost.
+    private void switchDay(Path live) throws IOException {
+        LocalDate liveDate = LaravelLogFiles.dailyDate(live);
+        Path next = LaravelLogFiles.dailyFile(siteDir, liveDate.plusDays(1));
+        if (!Files.exists(next)) {
+            next = LaravelLogFiles.dailyFile(siteDir, LocalDate.now());
+            if (!LocalDate.now().isAfter(liveDate) || !Files.exists(next)) {
+                return;
+            }
+        }
+        if (tailReader != null) {
+            readNewContent(false);
+            long quietFor = System.currentTimeMillis() - Files.getLastModifiedTime(live).toMillis();
+            if (quietFor < DAY_SWITCH_GRACE_MS) {
+                // Late writes may still land in the old file, look again shortly
+                suspect = true;
+                return;
+            }
+            readNewContent(true);
+        }
+        closeTail();
+        segments.add(Segment.of(next, true));
+        lastFilePosition = 0;
+        tailRestarts++;
+        assembler.reset();
+        startLiveSidecar();
+    }
 
-            if (line.contains("Stack trace:") || line.contains("#0 ") || line.matches("^#\\d+.*")) {
-                inStackTrace = true;
+    // Read the complete lines appended since the last read
+    // With finish the rest of the file is final, a partial last line and the last entry included
+    private void readNewContent(boolean finish) throws IOException {
+        synchronized (positionLock) {
+            long started = System.nanoTime();
+            long position = lastFilePosition;
+            long base = liveBase();
+            String line;
+            while ((line = tailReader.readLine(finish)) != null) {
+                assembler.accept(line, base + tailReader.lineStart());
+            }
+            if (finish) {
+                assembler.flush();
             }
 
-            if (inStackTrace) {
-                stackTraceBuilder.append(line).append("\n");
-            } else {
-                contextBuilder.append(line).append("\n");
+            // Only advance past what was actually consumed, a partial line stays pending
+            lastFilePosition = tailReader.position();
+            if (lastFilePosition != position) {
+                lastGrowthMillis = System.currentTimeMillis();
             }
+            metrics.parsed(lastFilePosition - position, pendingEntries.size());
+            metrics.read(System.nanoTime() - started);
+            publishPending(base);
         }
+    }
 
-        entry.setContext(contextBuilder.toString().trim());
-        entry.setStackTrace(stackTraceBuilder.toString().trim());
+    // Nothing was added to the open entry for a while, Laravel is done writing it
+    private void finishQuietEntry() {
+        if (openEntryOffset >= 0 && System.currentTimeMillis() - lastGrowthMillis >= openEntryGraceMs) {
+            assembler.flush();
+            publishPending(liveBase());
+        }
+    }
 
-        parseAdditionalData(entry, contextBuilder.toString());
+    // Hand the entries completed by a read to the stats, the sidecar and the listeners
+    private void publishPending(long base) {
+        synchronized (positionLock) {
+            openEntryOffset = assembler.openOffset();
+            long parsedMicros = tracing ? LaravelReadTrace.nowMicros() : 0;
+
+            if (!pendingEntries.isEmpty()) {
+                List<LaravelLog> newEntries = List.copyOf(pendingEntries);
+                pendingEntries.clear();
+                stats.addAll(newEntries);
+                appendToSidecar(newEntries, base);
+
+                // Notify listeners
+                LaravelReadTrace trace = tracing ? trace(parsedMicros) : null;
+                notifyListeners(listener -> listener.onLogEntriesAdded(newEntries, trace));
+
+                // Notify for individual entries
+                for (LaravelLog entry : newEntries) {
+                    notifyListeners(listener -> listener.onNewLogEntry(entry));
+                }
+            }
+        }
     }
 
-    // Parse additional data (reused from original parser)
-    private void parseAdditionalData(LaravelLog entry, String context) {
-        Pattern keyValuePattern = Pattern.compile("(\\w+):\\s*([^\\n]+)");
-        Matcher matcher = keyValuePattern.matcher(context);
+    // Stamps of the current read. A write that landed after detection was still part of this
+    // read, it counts as written when detected.
+    private LaravelReadTrace trace(long parsedMicros) {
+        long detected = readDetectedMicros == 0 ? parsedMicros : readDetectedMicros;
+        long written = detected;
+        try {
+            written = Math.min(detected, Files.getLastModifiedTime(livePath()).to(TimeUnit.MICROSECONDS));
+        } catch (IOException e) {
+            // Gone since the read, the detection time stands in for it
+        }
+        return new LaravelReadTrace(site, readSource.label(), written, detected, parsedMicros);
+    }
 
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String value = matcher.group(2).trim();
-            entry.addAdditionalData(key, value);
+    private void appendToSidecar(List<LaravelLog> entries, long base) {
+        if (liveSidecar == null) {
+            return;
         }
+        try {
+            for (LaravelLog entry : entries) {
+                liveSidecar.add(entry, base);
+            }
+            // Up to the open entry, which gets its record once it is complete
+            liveSidecar.commit(openEntryOffset >= 0 ? openEntryOffset - base : lastFilePosition);
+        } catch (IOException e) {
+            // Stop keeping it, the next start parses this file instead
+            log.warn("Cannot write sidecar of {}: {}", livePath(), e.getMessage());
+            closeSidecar();
+        }
+    }
 
-        if (context.contains("{") && context.contains("}")) {
+    private void openTail(Path logPath, Object fileKey) throws IOException {
+        tailChannel = FileChannel.open(logPath, StandardOpenOption.READ);
+        tailReader = new LogLineReader(tailChannel, lastFilePosition);
+        tailFileKey = fileKey;
+    }
+
+    private void closeTail() {
+        if (tailChannel != null) {
             try {
-                int startBrace = context.indexOf('{');
-                int endBrace = context.lastIndexOf('}');
-                if (startBrace != -1 && endBrace != -1 && endBrace > startBrace) {
-                    String jsonLike = context.substring(startBrace, endBrace + 1);
-                    entry.addAdditionalData("json_data", jsonLike);
-                }
-            } catch (Exception e) {
-                // Ignore JSON parsing errors
+                tailChannel.close();
+            } catch (IOException e) {
+                notifyListeners(listener -> listener.onFileWatchError(e));
             }
         }
+        tailChannel = null;
+        tailReader = null;
+        tailFileKey = null;
     }
 
     // Notify all listeners
@@ -380,11 +706,89 @@ public class LaravelLogWatcher {
             try {
                 action.accept(listener);
             } catch (Exception e) {
-                System.err.println("Error notifying listener: " + e.getMessage());
+                log.warn("Error notifying listener of {}: {}", siteDir, e.getMessage(), e);
             }
         }
     }
 
+    // Run an action with the entries logged after the one at offset, while no entries are being dispatched,
+    // so a listener registered in it misses or repeats nothing. The action gets null when offset may name
+    // another entry than the client saw (the file was rotated or truncated since), or more than maxBytes
+    // were logged after it. Most of it is parsed before taking the lock, which then only covers what was
+    // read meanwhile.
+    public void withReplay(long offset, long maxBytes, java.util.function.Consumer<List<LaravelLog>> action) {
+        int restarts = tailRestarts;
+        long end = publishedEnd();
+        List<LaravelLog> logs = replayable(offset, end, maxBytes) ? parseReplay(offset, end) : null;
+        synchronized (positionLock) {
+            action.accept(logs == null || tailRestarts != restarts ? null : finishReplay(offset, logs));
+        }
+    }
+
+    private boolean replayable(long offset, long end, long maxBytes) {
+        long stale = staleBelow;
+        boolean isStale = offset >>> SEGMENT_SHIFT == stale >>> SEGMENT_SHIFT && offset < stale;
+        return offset >= 0 && segmentIndex(segments, offset) >= 0 && offset < end && !isStale
+                && bytesAfter(offset, end) <= maxBytes;
+    }
+
+    private List<LaravelLog> parseReplay(long offset, long end) {
+        List<LaravelLog> logs = new ArrayList<>();
+        try {
+            parseRange(offset, end, logs::add);
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+        return logs;
+    }
+
+    // Add what was read since the replay was parsed, under the position lock
+    private List<LaravelLog> finishReplay(long offset, List<LaravelLog> logs) {
+        if (logs.isEmpty()) {
+            return null;
+        }
+        // The last entry may have had lines appended since, it is parsed again with the rest
+        long from = logs.remove(logs.size() - 1).getOffset();
+        try {
+            parseRange(from, publishedEnd(), logs::add);
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+        // The first entry has to be the one the client saw last
+        if (logs.isEmpty() || logs.get(0).getOffset() != offset) {
+            return null;
+        }
+        return logs.subList(1, logs.size());
+    }
+
+    // Where the entries handed to listeners end, the open entry is still to come
+    private long publishedEnd() {
+        long open = openEntryOffset;
+        if (open >= 0) {
+            return open;
+        }
+        return segments.isEmpty() ? 0 : liveBase() + lastFilePosition;
+    }
+
+    // Bytes of the files from offset up to end
+    private long bytesAfter(long offset, long end) {
+        List<Segment> files = List.copyOf(segments);
+        long lastSegment = end >>> SEGMENT_SHIFT;
+        long bytes = -(offset & LOCAL_MASK);
+        for (int i = segmentIndex(files, offset); i < files.size() && files.get(i).number() <= lastSegment; i++) {
+            if (files.get(i).number() == lastSegment) {
+                bytes += end & LOCAL_MASK;
+                continue;
+            }
+            try {
+                bytes += Files.size(LaravelLogFiles.resolveArchived(files.get(i).file()));
+            } catch (IOException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return bytes;
+    }
+
     // Get current file position
     public long getCurrentFilePosition() {
         synchronized (positionLock) {
@@ -392,6 +796,131 @@ public class LaravelLogWatcher {
         }
     }
 
+    // Current counts and history, without touching the file
+    public LaravelStateStats getStats() {
+        return stats.snapshot();
+    }
+
+    // Entries before the cursor, parsed from just their byte range of the file
+    public LaravelLogPage readPage(String cursor, int limit) {
+        LaravelLogPage page = new LaravelLogPage();
+        LaravelStatsAccumulator.PageRange range = stats.pageBefore(cursor, limit);
+        if (range == null) {
+            page.setLogs(List.of());
+            return page;
+        }
+        List<LaravelLog> logs = range.logs();
+        if (logs == null) {
+            // Evicted from the buffer, parse just that range of the files
+            logs = new ArrayList<>();
+            parseRange(range.start(), range.end(), logs::add);
+        }
+        page.setLogs(logs);
+        page.setCursor(range.cursor());
+        return page;
+    }
+
+    // Entries between two timestamps, read from just that part of the files
+    public LaravelLogPage readTimeRange(LocalDateTime from, LocalDateTime to, int limit) {
+        List<LaravelLog> logs = new ArrayList<>();
+        List<Segment> files = List.copyOf(segments);
+        for (int i = 0; i < files.size() && logs.size() < limit; i++) {
+            Path file = LaravelLogFiles.resolveArchived(files.get(i).file());
+            // A daily file only holds its own day, give or take the skew around midnight
+            LocalDate date = LaravelLogFiles.dailyDate(files.get(i).file());
+            if (date != null && (date.isBefore(from.minus(clockSkew).toLocalDate()) || date.isAfter(to.plus(clockSkew).toLocalDate()))) {
+                continue;
+            }
+            if (!Files.exists(file)) {
+                continue;
+            }
+            long base = files.get(i).base();
+            for (LaravelLog entry : LaravelLogParser.parseTimeRange(file.toString(), from, to, limit - logs.size(), clockSkew)) {
+                entry.setOffset(base + entry.getOffset());
+                logs.add(entry);
+            }
+        }
+        LaravelLogPage page = new LaravelLogPage();
+        page.setLogs(logs);
+        return page;
+    }
+
+    // Whether offset is in a file that is read by inflating it from its start
+    private static boolean isArchived(List<Segment> files, long offset) {
+        int index = segmentIndex(files, offset);
+        return index >= 0 && LaravelLogParser.isGzip(LaravelLogFiles.resolveArchived(files.get(index).file()).toString());
+    }
+
+    // Parse the entries starting in [start, end) of the offset space, which may span several files
+    private void parseRange(long start, long end, java.util.function.Consumer<LaravelLog> consumer) {
+        List<Segment> files = List.copyOf(segments);
+        int found = segmentIndex(files, start);
+        // A start in a file that is gone begins at the next one
+        int first = found >= 0 ? found : -found - 1;
+        long lastSegment = end >>> SEGMENT_SHIFT;
+        for (int i = first; i < files.size() && files.get(i).number() <= lastSegment; i++) {
+            long base = files.get(i).base();
+            long localStart = i == found ? start & LOCAL_MASK : 0;
+            long localEnd = files.get(i).number() == lastSegment ? end & LOCAL_MASK : Long.MAX_VALUE;
+            LaravelLogParser.parseRange(LaravelLogFiles.resolveArchived(files.get(i).file()).toString(), localStart, localEnd, entry -> {
+                entry.setOffset(base + entry.getOffset());
+                consumer.accept(entry);
+            });
+        }
+    }
+
+    // Entries matching every term of the query, buffered ones from memory and the rest from the file
+    public LaravelSearchPage search(String query, String cursor, int limit) {
+        LaravelSearchPage page = new LaravelSearchPage();
+        LaravelStatsAccumulator.SearchHits hits = stats.search(query, cursor, limit);
+        if (hits == null) {
+            page.setLogs(List.of());
+            return page;
+        }
+        List<LaravelStatsAccumulator.Hit> hitList = hits.hits();
+        LaravelLog[] found = new LaravelLog[hitList.size()];
+        List<Segment> files = List.copyOf(segments);
+        // Hits in an archive by segment, an archive can't seek so each is inflated once for all of its hits
+        Map<Long, TreeMap<Long, Integer>> archived = new TreeMap<>();
+        for (int i = 0; i < found.length; i++) {
+            LaravelStatsAccumulator.Hit hit = hitList.get(i);
+            if (hit.entry() != null) {
+                found[i] = hit.entry();
+            } else if (isArchived(files, hit.start())) {
+                archived.computeIfAbsent(hit.start() >>> SEGMENT_SHIFT, key -> new TreeMap<>()).put(hit.start(), i);
+            } else {
+                List<LaravelLog> parsed = new ArrayList<>(1);
+                parseRange(hit.start(), hit.end(), parsed::add);
+                found[i] = parsed.isEmpty() ? null : parsed.get(0);
+            }
+        }
+        for (Map.Entry<Long, TreeMap<Long, Integer>> segment : archived.entrySet()) {
+            TreeMap<Long, Integer> starts = segment.getValue();
+            long segmentEnd = (segment.getKey() + 1) << SEGMENT_SHIFT;
+            long end = Math.min(segmentEnd, hitList.get(starts.lastEntry().getValue()).end());
+            parseRange(starts.firstKey(), end, entry -> {
+                Integer index = starts.get(entry.getOffset());
+                if (index != null) {
+                    found[index] = entry;
+                }
+            });
+        }
+        List<LaravelLog> logs = new ArrayList<>(found.length);
+        for (LaravelLog entry : found) {
+            if (entry != null) {
+                logs.add(entry);
+            }
+        }
+        page.setLogs(logs);
+        page.setCursor(hits.cursor());
+        page.setTotal(hits.total());
+        return page;
+    }
+
+    public LaravelBufferUsage getBufferUsage() {
+        return stats.bufferUsage();
+    }
+
     // Check if watcher is running
     public boolean isWatching() {
         return isWatching;
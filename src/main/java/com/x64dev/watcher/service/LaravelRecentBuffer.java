@@ -0,0 +1,158 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring of the newest parsed entries, bounded by entry count and by an estimate
+ * of their heap size. The oldest entries are evicted first. Not thread-safe,
+ * the stats accumulator guards it.
+ */
+public class LaravelRecentBuffer {
+
+    // The entry object and the header of its text array
+    private static final long ENTRY_OVERHEAD = 72;
+
+    private final LaravelLog[] entries;
+    private final long[] sizes;
+    private final long maxBytes;
+    // Index of the oldest entry
+    private int head;
+    private int count;
+    private long bytes;
+    private long evicted;
+
+    public LaravelRecentBuffer(int maxEntries, long maxBytes) {
+        this.entries = new LaravelLog[Math.max(1, maxEntries)];
+        this.sizes = new long[entries.length];
+        this.maxBytes = maxBytes;
+    }
+
+    public void add(LaravelLog entry) {
+        if (count == entries.length) {
+            evictOldest();
+        }
+        int index = (head + count) % entries.length;
+        long size = estimateBytes(entry);
+        entries[index] = entry;
+        sizes[index] = size;
+        bytes += size;
+        count++;
+        // Always keep the newest entry, even one over the byte budget on its own
+        while (bytes > maxBytes && count > 1) {
+            evictOldest();
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            entries[(head + i) % entries.length] = null;
+        }
+        head = 0;
+        count = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Drop the entries from offset on, newest first
+     */
+    public void truncate(long offset) {
+        int kept = firstAtOrAfter(offset);
+        while (count > kept) {
+            int index = (head + count - 1) % entries.length;
+            bytes -= sizes[index];
+            entries[index] = null;
+            count--;
+        }
+    }
+
+    /**
+     * Up to limit of the newest entries, oldest first
+     */
+    public List<LaravelLog> newest(int limit) {
+        int size = Math.min(limit, count);
+        List<LaravelLog> result = new ArrayList<>(size);
+        for (int i = count - size; i < count; i++) {
+            result.add(entries[(head + i) % entries.length]);
+        }
+        return result;
+    }
+
+    /**
+     * Entries whose offsets fall in [start, end), or null when older entries from that range were evicted
+     */
+    public List<LaravelLog> range(long start, long end) {
+        if (count == 0 || get(0).getOffset() > start) {
+            return null;
+        }
+        List<LaravelLog> result = new ArrayList<>();
+        for (int i = firstAtOrAfter(start); i < count && get(i).getOffset() < end; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * The buffered entry starting at offset, null when there is none
+     */
+    public LaravelLog find(long offset) {
+        int i = firstAtOrAfter(offset);
+        return i < count && get(i).getOffset() == offset ? get(i) : null;
+    }
+
+    // Entries are appended in offset order, so the ring is sorted from head on
+    private int firstAtOrAfter(long offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).getOffset() < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    // Entries pushed out since startup
+    public long evicted() {
+        return evicted;
+    }
+
+    private LaravelLog get(int i) {
+        return entries[(head + i) % entries.length];
+    }
+
+    private void evictOldest() {
+        bytes -= sizes[head];
+        entries[head] = null;
+        head = (head + 1) % entries.length;
+        count--;
+        evicted++;
+    }
+
+    // Rough heap footprint, the text as stored. additionalData of a parsed entry is
+    // derived when read, so it isn't kept.
+    static long estimateBytes(LaravelLog entry) {
+        return ENTRY_OVERHEAD + entry.textBytes();
+    }
+}
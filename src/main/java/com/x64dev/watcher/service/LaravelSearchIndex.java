@@ -0,0 +1,193 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token index over the text of every entry of a site, built as entries are
+ * appended. Message, context and stack trace are tokenized straight from the
+ * entry's UTF-8 bytes, without splitting its continuation lines. Each token maps to the ascending ordinals of the
+ * entries containing it, in a growable int array. Not thread-safe, the stats
+ * accumulator guards it.
+ */
+public class LaravelSearchIndex {
+
+    // Longer runs are ids, hashes and base64 blobs nobody searches for
+    static final int MAX_TOKEN_LENGTH = 64;
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final StringBuilder token = new StringBuilder();
+
+    public void add(int ordinal, LaravelLog entry) {
+        entry.readText((text, start, length) -> index(ordinal, text, start, length));
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Put the postings of an index over older entries in front of this one's
+     */
+    public void prepend(LaravelSearchIndex older) {
+        older.postings.forEach((term, list) -> postings.merge(term, list, (current, previous) -> {
+            previous.append(current);
+            return previous;
+        }));
+    }
+
+    /**
+     * Forget the entries from this ordinal on
+     */
+    public void truncate(int ordinal) {
+        postings.values().removeIf(list -> list.truncate(ordinal));
+    }
+
+    public int terms() {
+        return postings.size();
+    }
+
+    /**
+     * Ascending ordinals of the entries containing every token of the query
+     */
+    public int[] search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return NONE;
+        }
+        List<Postings> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return NONE;
+            }
+            lists.add(list);
+        }
+        // Walk the shortest list and gallop through the others
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings shortest = lists.get(0);
+        int[] hits = new int[shortest.size];
+        int count = 0;
+        int[] from = new int[lists.size()];
+        for (int i = 0; i < shortest.size; i++) {
+            int ordinal = shortest.ids[i];
+            boolean all = true;
+            for (int l = 1; l < lists.size() && all; l++) {
+                int found = lists.get(l).seek(from[l], ordinal);
+                if (found >= 0) {
+                    from[l] = found + 1;
+                } else {
+                    from[l] = -found - 1;
+                    all = false;
+                }
+            }
+            if (all) {
+                hits[count++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(hits, count);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                if (current.length() <= MAX_TOKEN_LENGTH) {
+                    tokens.add(current.toString());
+                }
+                current.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    // Same tokens as tokenize, read from UTF-8
+    private void index(int ordinal, byte[] text, int start, int length) {
+        int end = start + length;
+        int i = start;
+        while (i <= end) {
+            int c;
+            if (i == end) {
+                c = ' ';
+                i++;
+            } else if (text[i] >= 0) {
+                c = text[i++];
+            } else {
+                // Multi-byte sequence, anything malformed just ends the token
+                int lead = text[i] & 0xFF;
+                int extra = lead >= 0xF0 ? 3 : lead >= 0xE0 ? 2 : lead >= 0xC0 ? 1 : 0;
+                c = extra == 0 ? ' ' : lead & (0x3F >> extra);
+                i++;
+                for (int k = 0; k < extra && i < end; k++, i++) {
+                    c = (c << 6) | (text[i] & 0x3F);
+                }
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.appendCodePoint(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                if (token.length() <= MAX_TOKEN_LENGTH) {
+                    postings.computeIfAbsent(token.toString(), key -> new Postings()).add(ordinal);
+                }
+                token.setLength(0);
+            }
+        }
+    }
+
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int ordinal) {
+            // Entries arrive in order, a repeated token in one entry is the last id again
+            if (size > 0 && ids[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = ordinal;
+        }
+
+        void append(Postings newer) {
+            int from = size > 0 && newer.size > 0 && newer.ids[0] == ids[size - 1] ? 1 : 0;
+            if (size + newer.size - from > ids.length) {
+                ids = Arrays.copyOf(ids, size + newer.size);
+            }
+            System.arraycopy(newer.ids, from, ids, size, newer.size - from);
+            size += newer.size - from;
+        }
+
+        // Cut off the ordinals from this one on, true when none are left
+        boolean truncate(int ordinal) {
+            int position = Arrays.binarySearch(ids, 0, size, ordinal);
+            size = position >= 0 ? position : -position - 1;
+            return size == 0;
+        }
+
+        // Gallop forward from an index, then binary search, since probes only ever move forward
+        int seek(int from, int ordinal) {
+            int low = from;
+            int high = from;
+            int step = 1;
+            while (high < size && ids[high] < ordinal) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            return Arrays.binarySearch(ids, low, Math.min(high + 1, size), ordinal);
+        }
+    }
+}
@@ -1,37 +1,96 @@
 package com.x64dev.watcher.service;
 
-import com.x64dev.watcher.models.LaravelLog;
-import com.x64dev.watcher.models.LaravelLogParser;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelBufferUsage;
+import com.x64dev.watcher.models.LaravelLogPage;
+import com.x64dev.watcher.models.LaravelSearchPage;
 import com.x64dev.watcher.models.LaravelStateStats;
-import lombok.Getter;
-import lombok.Setter;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.text.MessageFormat;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
 public class LaravelService {
 
+    @Autowired
+    WatcherProperties properties;
+
+    @Autowired
+    LaravelWatchEngine watchEngine;
+
+    @Autowired
+    WatcherMetrics metrics;
+
+    private final Map<String, LaravelLogWatcher> fileWatchers = new ConcurrentHashMap<>();
+
     public LaravelStateStats loadStats(String selectedSite){
-        String baseUri = "/home/x64dev/Desktop/logs/";
-        var logs =  LaravelLogParser.parseLogFile(MessageFormat.format("{0}/{1}/laravel.log", baseUri, selectedSite));
-        LaravelStateStats stats = new LaravelStateStats();
-        stats.setTotalCount(logs.size());
-        stats.setErrorsCount(logs.stream().filter((log)->log.getLevel().toLowerCase().equals("error")).toList().size());
-        stats.setWarningsCount(logs.stream().filter((log)->log.getLevel().toLowerCase().equals("warning")).toList().size());
-        stats.setInfoCount(logs.stream().filter((log)->log.getLevel().toLowerCase().equals("info")).toList().size());
-        stats.setDebugCount(logs.stream().filter((log)->log.getLevel().toLowerCase().equals("info")).toList().size());
-        stats.setLogs(logs);
-        return stats;
+        return getWatcher(selectedSite).getStats();
+    }
+
+    /**
+     * Page of entries older than the cursor from a stats snapshot or a previous page
+     */
+    public LaravelLogPage loadPage(String selectedSite, String cursor, Integer limit){
+        int size = limit == null || limit <= 0 ? properties.getSnapshotSize() : Math.min(limit, properties.getMaxPageSize());
+        return getWatcher(selectedSite).readPage(cursor, size);
     }
 
-    private LaravelLog updatedLog(){
-        var log = new LaravelLog();
-        return log;
+    /**
+     * Entries logged between from and to, oldest first
+     */
+    public LaravelLogPage loadTimeRange(String selectedSite, LocalDateTime from, LocalDateTime to, Integer limit){
+        int size = limit == null || limit <= 0 ? properties.getSnapshotSize() : Math.min(limit, properties.getMaxPageSize());
+        return getWatcher(selectedSite).readTimeRange(from, to, size);
     }
 
+    /**
+     * Entries matching every term of the query, newest page first
+     */
+    public LaravelSearchPage search(String selectedSite, String query, String cursor, Integer limit){
+        int size = limit == null || limit <= 0 ? properties.getSnapshotSize() : Math.min(limit, properties.getMaxPageSize());
+        return getWatcher(selectedSite).search(query, cursor, size);
+    }
+
+    /**
+     * In-memory buffer usage of every running site
+     */
+    public List<LaravelBufferUsage> bufferUsage(){
+        List<LaravelBufferUsage> usage = new ArrayList<>();
+        fileWatchers.forEach((site, watcher) -> {
+            LaravelBufferUsage siteUsage = watcher.getBufferUsage();
+            siteUsage.setSite(site);
+            usage.add(siteUsage);
+        });
+        return usage;
+    }
 
+    /**
+     * Get the running watcher for a site, starting it on first use
+     */
+    public LaravelLogWatcher getWatcher(String site){
+        return fileWatchers.computeIfAbsent(site, (key) -> {
+            LaravelLogWatcher watcher = new LaravelLogWatcher(key, properties, watchEngine, metrics);
+            try{
+                watcher.startWatching();
+            }catch (IOException e){
+                log.error("Failed to start watcher : {}", e.getMessage(), e);
+            }
+            return watcher;
+        });
+    }
+
+    @PreDestroy
+    private void stopWatchers(){
+        fileWatchers.values().forEach(LaravelLogWatcher::stopWatching);
+    }
 }
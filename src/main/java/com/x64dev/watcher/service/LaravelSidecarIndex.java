@@ -0,0 +1,281 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogHeader;
+import com.x64dev.watcher.models.LaravelLogParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary sidecar of one log file: a header naming the file by its fileKey, the
+ * bytes indexed so far (inflated for a gzip file), the file's size on disk and
+ * mtime at that point and the offset below which
+ * records were dropped for a truncation or a new file, then one fixed-size
+ * record per entry with its offset, epoch second, severity and length. Records
+ * are appended as entries are read, so after a restart only the part of the
+ * file past the indexed size has to be parsed. Not thread-safe, the watcher's
+ * position lock guards it.
+ */
+public class LaravelSidecarIndex implements Closeable {
+
+    private static final int MAGIC = 0x4C574958;
+    private static final int VERSION = 3;
+    static final int HEADER_SIZE = 128;
+    // offset (8), epoch second (8), severity (1), length (4)
+    static final int RECORD_SIZE = 21;
+    // magic, version, indexed size, file size, mtime, record count, stale below, key length
+    private static final int KEY_START = 4 + 4 + 8 + 8 + 8 + 8 + 8 + 2;
+    // fileKey strings are ASCII, one byte per character
+    private static final int MAX_KEY_LENGTH = HEADER_SIZE - KEY_START;
+    // Records written in one go while a whole file is parsed
+    private static final int WRITE_BATCH = 4096;
+
+    private final Path logFile;
+    private final FileChannel channel;
+    private String fileKey;
+    private long indexedSize;
+    private long records;
+    // Offsets below this named entries of an earlier version of the file
+    private long staleBelow;
+
+    // Records waiting to be written, the last one's length is known once the next one or the end arrives
+    private final long[] pendingOffsets = new long[WRITE_BATCH];
+    private final long[] pendingSeconds = new long[WRITE_BATCH];
+    private final byte[] pendingSeverities = new byte[WRITE_BATCH];
+    private int pendingCount;
+
+    private LaravelSidecarIndex(Path logFile, FileChannel channel) {
+        this.logFile = logFile;
+        this.channel = channel;
+    }
+
+    /**
+     * Open the sidecar of a log file. Records still describing the file are kept, anything
+     * else (another file under the same name, a rewrite, a truncation) starts it over.
+     */
+    public static LaravelSidecarIndex open(Path sidecar, Path logFile) throws IOException {
+        Files.createDirectories(sidecar.getParent());
+        FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        LaravelSidecarIndex index = new LaravelSidecarIndex(logFile, channel);
+        try {
+            if (!index.readHeader()) {
+                index.reset(0);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    // Whether the stored header still describes the log file
+    private boolean readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        if (header.hasRemaining()) {
+            return false;
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            return false;
+        }
+        long size = header.getLong();
+        long fileSize = header.getLong();
+        long mtime = header.getLong();
+        long count = header.getLong();
+        long stale = header.getLong();
+        byte[] key = new byte[Math.max(0, Math.min(header.getShort(), HEADER_SIZE - KEY_START))];
+        header.get(key);
+
+        BasicFileAttributes attributes = Files.readAttributes(logFile, BasicFileAttributes.class);
+        boolean sameMtime = attributes.lastModifiedTime().toMillis() == mtime;
+        // The indexed size of an archive counts inflated bytes, it is checked by what is on disk instead
+        boolean changed = LaravelLogParser.isGzip(logFile.toString())
+                ? attributes.size() != fileSize || !sameMtime
+                : attributes.size() < size || (attributes.size() == fileSize && !sameMtime);
+        if (!keyOf(attributes).equals(new String(key, StandardCharsets.UTF_8)) || changed
+                || channel.size() < HEADER_SIZE + count * RECORD_SIZE) {
+            // Changed while nobody watched, what was indexed of it is stale now
+            staleBelow = Math.max(stale, size);
+            return false;
+        }
+        fileKey = keyOf(attributes);
+        indexedSize = size;
+        records = count;
+        staleBelow = stale;
+        // Same file and at least as long, make sure the last indexed entry is still where it was
+        if (count == 0 || LaravelLogParser.isGzip(logFile.toString()) || lastRecordMatches()) {
+            return true;
+        }
+        staleBelow = Math.max(stale, size);
+        return false;
+    }
+
+    private boolean lastRecordMatches() throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        readFully(record, HEADER_SIZE + (records - 1) * RECORD_SIZE);
+        record.flip();
+        long offset = record.getLong();
+        long epochSecond = record.getLong();
+        byte severity = record.get();
+        List<LaravelLog> parsed = new ArrayList<>(1);
+        LaravelLogParser.parseRange(logFile.toString(), offset, offset + 1, parsed::add);
+        return !parsed.isEmpty() && epochSecond(parsed.get(0)) == epochSecond
+                && LaravelLogHeader.severity(parsed.get(0).getLevel()) == severity;
+    }
+
+    /**
+     * Bytes of the log file the records cover, parsing resumes here
+     */
+    public long indexedSize() {
+        return indexedSize;
+    }
+
+    public long records() {
+        return records;
+    }
+
+    /**
+     * Offsets of the log file below this were handed out for entries of an earlier
+     * version of it, before it was truncated or replaced
+     */
+    public long staleBelow() {
+        return staleBelow;
+    }
+
+    /**
+     * Hand every stored record to the consumer in file order
+     */
+    public void forEach(RecordConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * WRITE_BATCH);
+        long position = HEADER_SIZE;
+        long end = HEADER_SIZE + records * RECORD_SIZE;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(buffer, position);
+            buffer.flip();
+            position += buffer.limit();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                consumer.accept(buffer.getLong(), buffer.getLong(), buffer.get(), buffer.getInt());
+            }
+        }
+    }
+
+    /**
+     * Queue an entry whose offset is base + its offset in this file
+     */
+    public void add(LaravelLog entry, long base) throws IOException {
+        if (pendingCount == pendingOffsets.length) {
+            // Everything but the newest, whose length isn't known yet
+            write(pendingCount - 1, pendingOffsets[pendingCount - 1]);
+        }
+        pendingOffsets[pendingCount] = entry.getOffset() - base;
+        pendingSeconds[pendingCount] = epochSecond(entry);
+        pendingSeverities[pendingCount] = (byte) LaravelLogHeader.severity(entry.getLevel());
+        pendingCount++;
+    }
+
+    /**
+     * Write the queued entries, the file has been read up to end
+     */
+    public void commit(long end) throws IOException {
+        write(pendingCount, end);
+        indexedSize = Math.max(indexedSize, end);
+        BasicFileAttributes attributes = Files.readAttributes(logFile, BasicFileAttributes.class);
+        ByteBuffer header = header(attributes.size(), attributes.lastModifiedTime().toMillis());
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Drop every record, after the log file was truncated or replaced. Offsets below
+     * staleBelow stay stale, as do those that already were.
+     */
+    public void reset(long staleBelow) throws IOException {
+        this.staleBelow = Math.max(this.staleBelow, staleBelow);
+        pendingCount = 0;
+        channel.truncate(0);
+        fileKey = keyOf(Files.readAttributes(logFile, BasicFileAttributes.class));
+        indexedSize = 0;
+        records = 0;
+        commit(0);
+    }
+
+    // Write the first count queued entries as records, the last of them ending at end
+    private void write(int count, long end) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(count * RECORD_SIZE);
+        for (int i = 0; i < count; i++) {
+            long next = i + 1 < count ? pendingOffsets[i + 1] : end;
+            buffer.putLong(pendingOffsets[i]);
+            buffer.putLong(pendingSeconds[i]);
+            buffer.put(pendingSeverities[i]);
+            buffer.putInt((int) Math.min(Integer.MAX_VALUE, next - pendingOffsets[i]));
+        }
+        buffer.flip();
+        long position = HEADER_SIZE + records * RECORD_SIZE;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        records += count;
+        pendingCount -= count;
+        System.arraycopy(pendingOffsets, count, pendingOffsets, 0, pendingCount);
+        System.arraycopy(pendingSeconds, count, pendingSeconds, 0, pendingCount);
+        System.arraycopy(pendingSeverities, count, pendingSeverities, 0, pendingCount);
+    }
+
+    // Fill the buffer from a position of the sidecar, short only at its end
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+            // keep reading
+        }
+    }
+
+    private ByteBuffer header(long fileSize, long mtime) {
+        byte[] key = fileKey.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(indexedSize).putLong(fileSize).putLong(mtime).putLong(records)
+                .putLong(staleBelow).putShort((short) key.length).put(key);
+        header.clear();
+        return header;
+    }
+
+    private static String keyOf(BasicFileAttributes attributes) {
+        if (attributes.fileKey() == null) {
+            return "";
+        }
+        // Plenty for a unix (dev, ino) pair, cut the same way when written and compared
+        String key = attributes.fileKey().toString();
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    private static long epochSecond(LaravelLog entry) {
+        return entry.getTimestamp() == null ? 0 : entry.epochSecond();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long offset, long epochSecond, int severity, int length);
+    }
+}
@@ -0,0 +1,276 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelBufferUsage;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogHeader;
+import com.x64dev.watcher.models.LaravelStateStats;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Running per-site counters, fed by the watcher as entries are parsed.
+ * Keeps the newest entries in a bounded ring plus the byte offset of every
+ * entry, so older history can be paged back in from the file.
+ */
+public class LaravelStatsAccumulator {
+    private final int recentSize;
+
+    private int totalCount;
+    private int errorsCount;
+    private int warningsCount;
+    private int infoCount;
+    private int debugCount;
+    private final LaravelRecentBuffer recent;
+    // Token index over every entry, null when search is disabled
+    private final LaravelSearchIndex index;
+
+    // Offset and severity of every entry in file order, totalCount of them are in use
+    private long[] offsets = new long[1024];
+    private byte[] severities = new byte[1024];
+    // Bumped on truncation or rotation so older cursors stop matching
+    private long generation;
+
+    /**
+     * @param recentSize entries sent with a snapshot
+     * @param bufferEntries entries kept in memory for snapshots and pages
+     * @param bufferBytes estimated heap the kept entries may use
+     * @param searchable whether to keep a token index for search
+     */
+    public LaravelStatsAccumulator(int recentSize, int bufferEntries, long bufferBytes, boolean searchable) {
+        this.recentSize = recentSize;
+        this.recent = new LaravelRecentBuffer(Math.max(recentSize, bufferEntries), bufferBytes);
+        this.index = searchable ? new LaravelSearchIndex() : null;
+    }
+
+    public synchronized void add(LaravelLog entry) {
+        append(entry.getOffset(), LaravelLogHeader.severity(entry.getLevel()));
+        if (index != null) {
+            index.add(totalCount - 1, entry);
+        }
+        recent.add(entry);
+    }
+
+    /**
+     * Count an entry restored from a sidecar, with its offset but without its text
+     */
+    public synchronized void addIndexed(long offset, int severity) {
+        append(offset, severity);
+    }
+
+    private void append(long offset, int severity) {
+        if (totalCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            severities = Arrays.copyOf(severities, severities.length * 2);
+        }
+        offsets[totalCount] = offset;
+        severities[totalCount++] = (byte) severity;
+        count(severity, 1);
+    }
+
+    private void count(int severity, int delta) {
+        switch (severity) {
+            case 4 -> errorsCount += delta;
+            case 3 -> warningsCount += delta;
+            case 1 -> infoCount += delta;
+            case 0 -> debugCount += delta;
+            default -> { }
+        }
+    }
+
+    /**
+     * Offset of the oldest entry the buffer has room for, -1 when there are none
+     */
+    public synchronized long bufferStart() {
+        return totalCount == 0 ? -1 : offsets[Math.max(0, totalCount - recent.capacity())];
+    }
+
+    /**
+     * Replace the buffered entries, after entries were restored without their text
+     */
+    public synchronized void refillBuffer(List<LaravelLog> entries) {
+        recent.clear();
+        entries.forEach(recent::add);
+    }
+
+    /**
+     * Start rebuilding the search index over every entry so far, for entries restored without
+     * their text. Entries added from now on are indexed as usual. Null when search is disabled.
+     */
+    public synchronized IndexRebuild startIndexRebuild() {
+        if (index == null || totalCount == 0) {
+            return null;
+        }
+        index.clear();
+        return new IndexRebuild(generation, totalCount, offsets[totalCount - 1] + 1);
+    }
+
+    /**
+     * Put the entries indexed by a rebuild in front of those indexed since it started,
+     * false if the entries changed meanwhile
+     */
+    public synchronized boolean finishIndexRebuild(IndexRebuild rebuild, LaravelSearchIndex rebuilt) {
+        if (index == null || rebuild.generation() != generation) {
+            return false;
+        }
+        index.prepend(rebuilt);
+        return true;
+    }
+
+    /**
+     * The first count entries, which start in [0, end), have to be indexed again
+     */
+    public record IndexRebuild(long generation, int count, long end) {
+    }
+
+    public synchronized void addAll(List<LaravelLog> entries) {
+        for (LaravelLog entry : entries) {
+            add(entry);
+        }
+    }
+
+    // Forget everything, used when the file is truncated or rotated
+    public synchronized void reset() {
+        totalCount = 0;
+        errorsCount = 0;
+        warningsCount = 0;
+        infoCount = 0;
+        debugCount = 0;
+        recent.clear();
+        if (index != null) {
+            index.clear();
+        }
+        generation++;
+    }
+
+    /**
+     * Forget the entries from offset on, used when the tailed file is truncated or rotated.
+     * Cursors of the older entries stop matching too.
+     */
+    public synchronized void truncate(long offset) {
+        int kept = Arrays.binarySearch(offsets, 0, totalCount, offset);
+        kept = kept >= 0 ? kept : -kept - 1;
+        for (int i = kept; i < totalCount; i++) {
+            count(severities[i], -1);
+        }
+        totalCount = kept;
+        recent.truncate(offset);
+        if (index != null) {
+            index.truncate(kept);
+        }
+        generation++;
+    }
+
+    public synchronized LaravelStateStats snapshot() {
+        LaravelStateStats stats = new LaravelStateStats();
+        stats.setTotalCount(totalCount);
+        stats.setErrorsCount(errorsCount);
+        stats.setWarningsCount(warningsCount);
+        stats.setInfoCount(infoCount);
+        stats.setDebugCount(debugCount);
+        List<LaravelLog> logs = recent.newest(recentSize);
+        stats.setLogs(logs);
+        int oldest = totalCount - logs.size();
+        stats.setCursor(oldest > 0 ? encodeCursor(offsets[oldest]) : null);
+        return stats;
+    }
+
+    /**
+     * Byte range holding up to limit entries before the cursor, or null if the cursor is stale or unknown
+     */
+    public synchronized PageRange pageBefore(String cursor, int limit) {
+        long end = decodeCursor(cursor);
+        if (end < 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(offsets, 0, totalCount, end);
+        if (index <= 0) {
+            return null;
+        }
+        int first = Math.max(0, index - limit);
+        return new PageRange(offsets[first], end, first > 0 ? encodeCursor(offsets[first]) : null,
+                recent.range(offsets[first], end));
+    }
+
+    /**
+     * Up to limit entries matching every term of the query, older than the cursor, oldest first.
+     * Null when search is disabled or the cursor is stale.
+     */
+    public synchronized SearchHits search(String query, String cursor, int limit) {
+        if (index == null) {
+            return null;
+        }
+        int[] matches = index.search(query);
+        int before = matches.length;
+        if (cursor != null && !cursor.isEmpty()) {
+            int ordinal = Arrays.binarySearch(offsets, 0, totalCount, decodeCursor(cursor));
+            if (ordinal < 0) {
+                return null;
+            }
+            int position = Arrays.binarySearch(matches, ordinal);
+            before = position >= 0 ? position : -position - 1;
+        }
+        int first = Math.max(0, before - limit);
+        List<Hit> hits = new ArrayList<>(before - first);
+        for (int i = first; i < before; i++) {
+            int ordinal = matches[i];
+            long start = offsets[ordinal];
+            long end = ordinal + 1 < totalCount ? offsets[ordinal + 1] : Long.MAX_VALUE;
+            hits.add(new Hit(start, end, recent.find(start)));
+        }
+        return new SearchHits(hits, first > 0 ? encodeCursor(offsets[matches[first]]) : null, matches.length);
+    }
+
+    /**
+     * Byte range of one search hit, with the entry itself when it is still buffered
+     */
+    public record Hit(long start, long end, LaravelLog entry) {
+    }
+
+    public record SearchHits(List<Hit> hits, String cursor, int total) {
+    }
+
+    /**
+     * Byte range of a page, with its entries when they are all still buffered
+     */
+    public record PageRange(long start, long end, String cursor, List<LaravelLog> logs) {
+    }
+
+    /**
+     * Entries, estimated bytes and evictions of the in-memory buffer
+     */
+    public synchronized LaravelBufferUsage bufferUsage() {
+        LaravelBufferUsage usage = new LaravelBufferUsage();
+        usage.setEntries(recent.size());
+        usage.setMaxEntries(recent.capacity());
+        usage.setBytes(recent.bytes());
+        usage.setMaxBytes(recent.maxBytes());
+        usage.setEvicted(recent.evicted());
+        return usage;
+    }
+
+    private String encodeCursor(long offset) {
+        String raw = generation + ":" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Offset the cursor points at, -1 if it is malformed or from an older generation
+    private long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return -1;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = raw.indexOf(':');
+            if (separator < 0 || Long.parseLong(raw.substring(0, separator)) != generation) {
+                return -1;
+            }
+            return Long.parseLong(raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
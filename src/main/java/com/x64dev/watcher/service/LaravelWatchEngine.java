@@ -0,0 +1,194 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.config.WatcherExecutors;
+import com.x64dev.watcher.config.WatcherProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One WatchService, one watch thread and one fallback poller for every site.
+ * Each site directory under SITES_BASE_URI is registered with the shared
+ * service and events are routed to the site's watcher by their watch key.
+ * Reads run on a small shared pool, at most one queued read per site.
+ */
+@Slf4j
+@Service
+public class LaravelWatchEngine {
+
+    @Autowired
+    WatcherProperties properties;
+
+    @Autowired
+    WatcherExecutors executors;
+
+    private WatchService watchService;
+    private final Map<WatchKey, LaravelLogWatcher> watchersByKey = new ConcurrentHashMap<>();
+    private final Set<LaravelLogWatcher> watchers = ConcurrentHashMap.newKeySet();
+
+    private Thread watchThread;
+    private ScheduledExecutorService poller;
+    private ExecutorService tailExecutor;
+    // Long jobs such as rebuilding a search index, kept off the tail threads
+    private ExecutorService backgroundExecutor;
+
+    @PostConstruct
+    private void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        tailExecutor = executors.newTaskExecutor("laravel-tail", Math.max(1, properties.getTailThreads()));
+        backgroundExecutor = executors.newTaskExecutor("laravel-background", 1);
+        poller = Executors.newSingleThreadScheduledExecutor();
+        poller.scheduleWithFixedDelay(this::pollSuspects, properties.getFallbackPollIntervalMs(),
+                properties.getFallbackPollIntervalMs(), TimeUnit.MILLISECONDS);
+
+        watchThread = executors.startLoop("laravel-watch", this::watchLoop);
+    }
+
+    /**
+     * Start delivering change events for the log files in the watcher's site directory
+     */
+    public void register(LaravelLogWatcher watcher) throws IOException {
+        WatchKey key = watcher.getSiteDir().register(watchService,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        watchersByKey.put(key, watcher);
+        watchers.add(watcher);
+    }
+
+    public void unregister(LaravelLogWatcher watcher) {
+        watchers.remove(watcher);
+        watchersByKey.entrySet().removeIf(entry -> {
+            if (entry.getValue() == watcher) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Run a long job for a watcher without holding up reads
+     */
+    void runInBackground(Runnable task) {
+        try {
+            backgroundExecutor.execute(task);
+        } catch (Exception e) {
+            log.error("Failed to queue background task: {}", e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            LaravelLogWatcher watcher = watchersByKey.get(key);
+            if (watcher == null) {
+                key.pollEvents();
+                key.reset();
+                continue;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, let the poller look at the file
+                    watcher.markSuspect();
+                } else if (event.context() instanceof Path file && LaravelLogFiles.isLogFile(file.toString())) {
+                    // laravel.log, or any day's file so a new day is picked up as soon as it is created
+                    changed = true;
+                }
+            }
+            if (changed) {
+                dispatch(watcher, ChangeSource.EVENT);
+            }
+
+            if (!key.reset()) {
+                // Directory is gone or unreadable, only the poller can see it now
+                watchersByKey.remove(key);
+                watcher.markSuspect();
+            }
+        }
+    }
+
+    // Look only at files whose events may have been missed or that went quiet for a while
+    private void pollSuspects() {
+        long now = System.currentTimeMillis();
+        for (LaravelLogWatcher watcher : watchers) {
+            if (watcher.needsPoll(now, properties.getFallbackIdleMs())) {
+                dispatch(watcher, ChangeSource.POLL);
+            }
+        }
+    }
+
+    private void dispatch(LaravelLogWatcher watcher, ChangeSource source) {
+        if (!watcher.scheduleRead(source)) {
+            return;
+        }
+        try {
+            tailExecutor.execute(watcher::runScheduledRead);
+        } catch (Exception e) {
+            // Rejected at shutdown or under saturation, the flag would otherwise block every later read
+            watcher.cancelScheduledRead();
+            log.error("Failed to queue read for {}: {}", watcher.getSiteDir(), e.getMessage());
+        }
+    }
+
+    /**
+     * What queued a read: a WatchService event or the fallback poller
+     */
+    enum ChangeSource {
+        EVENT("inotify"), POLL("poll");
+
+        private final String label;
+
+        ChangeSource(String label) {
+            this.label = label;
+        }
+
+        String label() {
+            return label;
+        }
+    }
+
+    @PreDestroy
+    private void stop() {
+        poller.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.error("Failed to close watch service: {}", e.getMessage(), e);
+        }
+        watchThread.interrupt();
+        backgroundExecutor.shutdownNow();
+        tailExecutor.shutdown();
+        try {
+            if (!tailExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                tailExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -28,4 +29,23 @@ public class WatcherService {
         }
         return sites;
     }
+
+    /**
+     * Whether site names a directory right under SITES_BASE_URI, checked before a
+     * request gets to start a watcher for it
+     */
+    public boolean isSite(String site){
+        if(site == null || site.isBlank()){
+            return false;
+        }
+        Path base = Paths.get(System.getenv("SITES_BASE_URI")).toAbsolutePath().normalize();
+        Path directory;
+        try{
+            directory = base.resolve(site).normalize();
+        }catch (InvalidPathException e){
+            return false;
+        }
+        return base.equals(directory.getParent()) && directory.getFileName().toString().equals(site)
+                && Files.isDirectory(directory);
+    }
 }
@@ -0,0 +1,121 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelReadTrace;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One entry plus its JSON, shared by every session subscribed to the site.
+ * The JSON and the "single" frame are built on first use and then reused,
+ * so an entry is serialized once however many sessions receive it. The same
+ * goes for its binary encodings and deflated chunks, by LaravelWireEncoding.
+ * In tracing mode it also carries the stamps of the read that found it.
+ */
+final class LaravelLogPayload {
+
+    private final LaravelLog entry;
+    private final ObjectMapper mapper;
+    private final LaravelReadTrace trace;
+    private volatile String json;
+    private volatile String singleFrame;
+    // By encoding, allocated once a session wants something other than JSON text
+    private byte[][] encoded;
+    private byte[][] deflated;
+
+    LaravelLogPayload(LaravelLog entry, ObjectMapper mapper) {
+        this(entry, mapper, null);
+    }
+
+    LaravelLogPayload(LaravelLog entry, ObjectMapper mapper, LaravelReadTrace trace) {
+        this.entry = entry;
+        this.mapper = mapper;
+        this.trace = trace;
+    }
+
+    LaravelLog getEntry() {
+        return entry;
+    }
+
+    // Null unless tracing
+    LaravelReadTrace getTrace() {
+        return trace;
+    }
+
+    String json() throws JsonProcessingException {
+        String value = json;
+        if (value == null) {
+            synchronized (this) {
+                value = json;
+                if (value == null) {
+                    value = mapper.writeValueAsString(entry);
+                    json = value;
+                }
+            }
+        }
+        return value;
+    }
+
+    synchronized byte[] encoded(LaravelWireEncoding encoding) throws IOException {
+        if (encoded == null) {
+            encoded = new byte[LaravelWireEncoding.values().length][];
+        }
+        byte[] value = encoded[encoding.ordinal()];
+        if (value == null) {
+            value = encoding == LaravelWireEncoding.JSON
+                    ? json().getBytes(StandardCharsets.UTF_8) : encoding.entry(entry, mapper);
+            encoded[encoding.ordinal()] = value;
+        }
+        return value;
+    }
+
+    // The encoded entry as a sync-flushed raw deflate chunk, see LaravelWireFormat
+    synchronized byte[] deflated(LaravelWireEncoding encoding) throws IOException {
+        if (deflated == null) {
+            deflated = new byte[LaravelWireEncoding.values().length][];
+        }
+        byte[] value = deflated[encoding.ordinal()];
+        if (value == null) {
+            value = LaravelWireFormat.deflate(encoded(encoding), false);
+            deflated[encoding.ordinal()] = value;
+        }
+        return value;
+    }
+
+    // {"type":"update","mode":"single","data":{...}}
+    String singleFrame() throws JsonProcessingException {
+        String value = singleFrame;
+        if (value == null) {
+            value = "{\"type\":\"update\",\"mode\":\"single\",\"data\":" + json() + "}";
+            singleFrame = value;
+        }
+        return value;
+    }
+
+    // {"type":"update","mode":"multiple","data":[{...},{...}]}, stitched from the cached entry JSON
+    static String multipleFrame(Iterable<LaravelLogPayload> payloads) throws JsonProcessingException {
+        StringBuilder frame = new StringBuilder("{\"type\":\"update\",\"mode\":\"multiple\",\"data\":[");
+        boolean first = true;
+        for (LaravelLogPayload payload : payloads) {
+            if (!first) {
+                frame.append(',');
+            }
+            frame.append(payload.json());
+            first = false;
+        }
+        return frame.append("]}").toString();
+    }
+
+    // An update frame with ,"trace":{...} added: the stamps of the read plus when the frame was sent
+    static String tracedFrame(String frame, LaravelReadTrace trace, long sentMicros) {
+        return frame.substring(0, frame.length() - 1)
+                + ",\"trace\":{\"source\":\"" + trace.source() + "\""
+                + ",\"written\":" + trace.writtenMicros()
+                + ",\"detected\":" + trace.detectedMicros()
+                + ",\"parsed\":" + trace.parsedMicros()
+                + ",\"sent\":" + sentMicros + "}}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.x64dev.watcher.socks.laravel;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+
+/**
+ * Where a sender's messages end up, a lara-sock session or an SSE stream
+ */
+interface LaravelOutlet {
+
+    String getId();
+
+    /**
+     * Write one message, lastOffset is the offset of the newest entry it brings the client up to, or -1
+     */
+    void send(WebSocketMessage<?> message, long lastOffset) throws IOException;
+
+    /**
+     * Show an idle client the connection is still there, for transports that only notice
+     * a gone client when a write fails
+     */
+    default void heartbeat() {
+    }
+
+    /**
+     * Hang up on a client that can't keep up
+     */
+    void closeSlow() throws IOException;
+
+    static LaravelOutlet of(WebSocketSession session) {
+        return new LaravelOutlet() {
+            @Override
+            public String getId() {
+                return session.getId();
+            }
+
+            @Override
+            public void send(WebSocketMessage<?> message, long lastOffset) throws IOException {
+                session.sendMessage(message);
+            }
+
+            @Override
+            public void closeSlow() throws IOException {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        };
+    }
+}
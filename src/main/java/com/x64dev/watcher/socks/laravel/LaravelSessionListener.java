@@ -0,0 +1,86 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.config.WatcherProperties.DispatchMode;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands a site's new entries to a session's sender, either one message per
+ * entry or coalesced into batches flushed by size or by age. Runs on the
+ * watcher thread, so it only ever enqueues.
+ */
+@Slf4j
+class LaravelSessionListener {
+
+    @Getter
+    private final LaravelLogFilter filter;
+    private final LaravelSessionSender sender;
+    private final ScheduledExecutorService scheduler;
+    private final DispatchMode mode;
+    private final int batchSize;
+    private final long batchDelayMs;
+
+    private final List<LaravelLogPayload> batch = new ArrayList<>();
+    private ScheduledFuture<?> pendingFlush;
+    private boolean closed;
+
+    LaravelSessionListener(String site, LaravelLogFilter filter, WatcherProperties properties,
+                           LaravelSessionSender sender, ScheduledExecutorService scheduler) {
+        this.filter = filter;
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.mode = properties.dispatchModeFor(site);
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.batchDelayMs = properties.getBatchDelayMs();
+    }
+
+    void onEntries(List<LaravelLogPayload> payloads) {
+        if (mode == DispatchMode.SINGLE) {
+            for (LaravelLogPayload payload : payloads) {
+                sender.sendEntries("single", List.of(payload));
+            }
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            batch.addAll(payloads);
+            if (batch.size() >= batchSize) {
+                flush();
+            } else if (pendingFlush == null) {
+                pendingFlush = scheduler.schedule(this::flush, batchDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Queue everything buffered, in messages of at most batchSize entries
+    synchronized void flush() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            sender.sendEntries("multiple", List.copyOf(batch.subList(from, Math.min(from + batchSize, batch.size()))));
+        }
+        batch.clear();
+    }
+
+    // Drop anything buffered once the socket is gone
+    synchronized void close() {
+        closed = true;
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        batch.clear();
+    }
+}
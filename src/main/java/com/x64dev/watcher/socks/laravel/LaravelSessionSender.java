@@ -0,0 +1,228 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties.OverflowPolicy;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded outbound queue for one socket or SSE stream. Callers only enqueue, a single drain
+ * task at a time does the serialization and the network writes, so a slow
+ * client never holds up the watcher or other sessions.
+ */
+@Slf4j
+class LaravelSessionSender {
+
+    private final LaravelOutlet outlet;
+    private final ObjectMapper mapper;
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final LaravelWireFormat format;
+    private final WatcherMetrics.Session metrics;
+
+    // Queued for a heartbeat, written by the drain like any message
+    private static final Outbound HEARTBEAT = new Outbound(null, null, null, -1);
+
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    // Entries waiting in the queue, control messages don't count
+    private int queuedEntries;
+    // Entries dropped since the last gap marker went out
+    private long droppedEntries;
+    private boolean draining;
+    private boolean closed;
+
+    LaravelSessionSender(WebSocketSession session, ObjectMapper mapper, Executor executor,
+                         int capacity, OverflowPolicy policy, LaravelWireFormat format, WatcherMetrics metrics) {
+        this(LaravelOutlet.of(session), mapper, executor, capacity, policy, format, metrics);
+    }
+
+    LaravelSessionSender(LaravelOutlet outlet, ObjectMapper mapper, Executor executor,
+                         int capacity, OverflowPolicy policy, LaravelWireFormat format, WatcherMetrics metrics) {
+        this.outlet = outlet;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.format = format;
+        this.metrics = metrics.session(outlet.getId(), this, LaravelSessionSender::getQueuedEntries);
+    }
+
+    /**
+     * Queue a snapshot, page or other reply. These are never dropped.
+     */
+    void sendControl(Object message) {
+        sendControl(message, -1);
+    }
+
+    /**
+     * Same, for a snapshot or replay that brings the client up to the entry at lastOffset
+     */
+    void sendControl(Object message, long lastOffset) {
+        enqueue(new Outbound(message, null, null, lastOffset));
+    }
+
+    /**
+     * Queue live entries as one "single" or "multiple" update
+     */
+    void sendEntries(String mode, List<LaravelLogPayload> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        enqueue(new Outbound(null, entries, mode, entries.get(entries.size() - 1).getEntry().getOffset()));
+    }
+
+    /**
+     * Queue a heartbeat, unless something is waiting to go out anyway
+     */
+    void sendHeartbeat() {
+        synchronized (this) {
+            if (!queue.isEmpty()) {
+                return;
+            }
+        }
+        enqueue(HEARTBEAT);
+    }
+
+    void close() {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+            queuedEntries = 0;
+        }
+        metrics.close();
+    }
+
+    synchronized int getQueuedEntries() {
+        return queuedEntries;
+    }
+
+    private void enqueue(Outbound item) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            queue.addLast(item);
+            if (item.entries() != null) {
+                queuedEntries += item.entries().size();
+                if (queuedEntries > capacity) {
+                    if (policy == OverflowPolicy.DISCONNECT) {
+                        metrics.dropped(queuedEntries);
+                        disconnect = true;
+                        closed = true;
+                        queue.clear();
+                        queuedEntries = 0;
+                    } else {
+                        dropOldest();
+                    }
+                }
+            }
+            if (!disconnect && !draining) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+        if (disconnect) {
+            log.warn("Closing slow lara-sock session {}, more than {} entries queued", outlet.getId(), capacity);
+            executor.execute(() -> {
+                try {
+                    outlet.closeSlow();
+                } catch (IOException e) {
+                    log.error("Failed to close slow lara-sock session: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    // Drop whole entry updates from the front until the queue fits again
+    private void dropOldest() {
+        Iterator<Outbound> iterator = queue.iterator();
+        while (queuedEntries > capacity && iterator.hasNext()) {
+            Outbound item = iterator.next();
+            if (item.entries() != null) {
+                iterator.remove();
+                queuedEntries -= item.entries().size();
+                droppedEntries += item.entries().size();
+                metrics.dropped(item.entries().size());
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Outbound item;
+            long dropped = 0;
+            synchronized (this) {
+                item = queue.pollFirst();
+                if (item == null || closed) {
+                    draining = false;
+                    return;
+                }
+                if (item.entries() != null) {
+                    queuedEntries -= item.entries().size();
+                    if (policy == OverflowPolicy.GAP) {
+                        dropped = droppedEntries;
+                        droppedEntries = 0;
+                    }
+                }
+            }
+            if (item == HEARTBEAT) {
+                outlet.heartbeat();
+                continue;
+            }
+            try {
+                if (dropped > 0) {
+                    var gap = new HashMap<String, Object>();
+                    gap.put("type", "gap");
+                    gap.put("dropped", dropped);
+                    write(format.message(gap, mapper), -1);
+                }
+                if (item.message() != null) {
+                    write(format.message(item.message(), mapper), item.offset());
+                } else {
+                    writeEntries(item);
+                }
+            } catch (Exception e) {
+                log.error("Failed to send message to lara-sock: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // In tracing mode the frame carries the stamps of its oldest entry's read, and every
+    // read the frame covers has its latencies recorded
+    private void writeEntries(Outbound item) throws IOException {
+        LaravelReadTrace first = item.entries().get(0).getTrace();
+        long sentMicros = first == null ? 0 : LaravelReadTrace.nowMicros();
+        write(format.update(item.mode(), item.entries(), first, sentMicros), item.offset());
+        if (first == null) {
+            return;
+        }
+        LaravelReadTrace recorded = null;
+        for (LaravelLogPayload payload : item.entries()) {
+            if (payload.getTrace() != null && payload.getTrace() != recorded) {
+                recorded = payload.getTrace();
+                metrics.traced(recorded, sentMicros);
+            }
+        }
+    }
+
+    private void write(WebSocketMessage<?> message, long lastOffset) throws IOException {
+        long started = System.nanoTime();
+        outlet.send(message, lastOffset);
+        metrics.sent(System.nanoTime() - started);
+    }
+
+    private record Outbound(Object message, List<LaravelLogPayload> entries, String mode, long offset) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import com.x64dev.watcher.models.LogEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * The one listener a site's watcher has for all of its sockets. Sessions are
+ * grouped by filter, each distinct filter runs once per entry, and only
+ * entries some filter lets through are wrapped into payloads, shared by
+ * every session that wants them. Filtered-out entries are never serialized.
+ */
+class LaravelSiteFanout implements LogEventListener {
+
+    private final ObjectMapper mapper;
+    private final Map<LaravelLogFilter, FilterGroup> groups = new ConcurrentHashMap<>();
+
+    LaravelSiteFanout(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    void add(LaravelSessionListener listener) {
+        groups.compute(listener.getFilter(), (filter, group) -> {
+            FilterGroup target = group != null ? group : new FilterGroup(filter.isEmpty() ? null : filter.compile());
+            target.sessions.add(listener);
+            return target;
+        });
+    }
+
+    void remove(LaravelSessionListener listener) {
+        groups.computeIfPresent(listener.getFilter(), (filter, group) -> {
+            group.sessions.remove(listener);
+            return group.sessions.isEmpty() ? null : group;
+        });
+    }
+
+    @Override
+    public void onLogEntriesAdded(List<LaravelLog> logEntries) {
+        onLogEntriesAdded(logEntries, null);
+    }
+
+    @Override
+    public void onLogEntriesAdded(List<LaravelLog> logEntries, LaravelReadTrace trace) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        LaravelLogPayload[] payloads = new LaravelLogPayload[logEntries.size()];
+        for (FilterGroup group : groups.values()) {
+            List<LaravelLogPayload> matched = new ArrayList<>();
+            for (int i = 0; i < payloads.length; i++) {
+                LaravelLog entry = logEntries.get(i);
+                if (group.predicate == null || group.predicate.test(entry)) {
+                    if (payloads[i] == null) {
+                        payloads[i] = new LaravelLogPayload(entry, mapper, trace);
+                    }
+                    matched.add(payloads[i]);
+                }
+            }
+            if (matched.isEmpty()) {
+                continue;
+            }
+            List<LaravelLogPayload> shared = List.copyOf(matched);
+            for (LaravelSessionListener session : group.sessions) {
+                session.onEntries(shared);
+            }
+        }
+    }
+
+    @Override
+    public void onNewLogEntry(LaravelLog logEntry) {
+    }
+
+    @Override
+    public void onFileWatchError(Exception error) {
+    }
+
+    @Override
+    public void onFileWatchStarted(String filePath) {
+    }
+
+    @Override
+    public void onFileWatchStopped() {
+    }
+
+    // Sessions sharing one filter, the predicate is null when it lets everything through
+    private static class FilterGroup {
+        private final Predicate<LaravelLog> predicate;
+        private final List<LaravelSessionListener> sessions = new CopyOnWriteArrayList<>();
+
+        FilterGroup(Predicate<LaravelLog> predicate) {
+            this.predicate = predicate;
+        }
+    }
+}
@@ -12,7 +12,8 @@ public class LaravelSockConfig implements WebSocketConfigurer {
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(myHandler(),"/api/lara-sock" ).addInterceptors(new LaravelSockInterceptor());
+        registry.addHandler(myHandler(),"/api/lara-sock" ).addInterceptors(new LaravelSockInterceptor())
+                .setHandshakeHandler(new LaravelSockHandshakeHandler());
 
     }
 
@@ -1,35 +1,56 @@
 package com.x64dev.watcher.socks.laravel;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.config.WatcherExecutors;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
 import com.x64dev.watcher.models.LaravelLog;
-import com.x64dev.watcher.models.LogEventAdapter;
-import com.x64dev.watcher.models.LogEventListener;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import com.x64dev.watcher.models.LaravelStateStats;
 import com.x64dev.watcher.service.LaravelLogWatcher;
 import com.x64dev.watcher.service.LaravelService;
+import com.x64dev.watcher.service.WatcherService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 @Slf4j
 public class LaravelSockHandler extends TextWebSocketHandler {
     @Autowired
     LaravelService laravelService;
 
+    @Autowired
+    WatcherService watcherService;
+
+    @Autowired
+    WatcherProperties properties;
+
+    @Autowired
+    WatcherExecutors executors;
+
+    @Autowired
+    WatcherMetrics metrics;
+
     @Getter
     @Autowired
     private static LaravelSockHandler instance;
@@ -37,104 +58,219 @@ public class LaravelSockHandler extends TextWebSocketHandler {
     @Autowired
     private  ObjectMapper mapper;
 
+    // Flushes batches that did not fill up within the batch delay and queues SSE heartbeats,
+    // it never writes to a client itself
+    private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor();
+    // Runs the per-session drain tasks, never more than one per session at a time
+    private ExecutorService sendExecutor;
 
     @PostConstruct
     private void init() {
-        String site = System.getenv("DEFAULT_SITE");
-        if(!fileWatchers.containsKey(site)){
-            LaravelLogWatcher watcher = new LaravelLogWatcher(site);
-            try{
-                watcher.startWatching();
-            }catch (IOException e){
-                log.error("Failed to start watcher : {}", e.getMessage(), e);
-            }
-            fileWatchers.put(System.getenv("DEFAULT_SITE"), watcher);
-        }
+        sendExecutor = executors.newTaskExecutor("lara-sock-send", 0);
+        laravelService.getWatcher(System.getenv("DEFAULT_SITE"));
         instance = this;
     }
 
-    private final Map<String, LaravelLogWatcher> fileWatchers = new ConcurrentHashMap<>();
+    @PreDestroy
+    private void shutdown() {
+        batchScheduler.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
     private final Map<String, String> sessionSite = new ConcurrentHashMap<>();
+    private final Map<String, LaravelSessionListener> sessionListeners = new ConcurrentHashMap<>();
+    private final Map<String, LaravelSessionSender> sessionSenders = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> sseHeartbeats = new ConcurrentHashMap<>();
+    // One fan-out per site, registered with that site's watcher once
+    private final Map<String, LaravelSiteFanout> siteFanouts = new ConcurrentHashMap<>();
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        String site = System.getenv("DEFAULT_SITE");
-        sessionSite.put(session.getId(), site);
-        LaravelLogWatcher watcher = fileWatchers.get(site);
-        watcher.addListener(newListener(session));
-        var stats = laravelService.loadStats(site);
+        sessionSenders.put(session.getId(), new LaravelSessionSender(session, mapper, sendExecutor,
+                properties.getSessionQueueCapacity(), properties.getOverflowPolicy(),
+                LaravelWireFormat.of(session.getAttributes()), metrics));
+        // A reconnecting client can name its site and last offset right on the handshake
+        Object site = session.getAttributes().get("site");
+        if (site != null && !watcherService.isSite(site.toString())) {
+            sendError(session, "Unknown site: " + site);
+            return;
+        }
+        subscribe(session.getId(), site != null ? site.toString() : System.getenv("DEFAULT_SITE"), new LaravelLogFilter(),
+                resumeOffset(session.getAttributes().get("resumeFrom")));
+    }
+
+    private static Long resumeOffset(Object value) {
         try {
-            session.sendMessage(new TextMessage(mapper.writeValueAsString(stats)));
-        }catch (IOException e){
-            log.error("Failed to send data to lara-sock on connection: {}", e.getMessage(), e);
+            return value == null ? null : Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         MessageBody body = mapper.readValue(message.getPayload(), MessageBody.class);
-        if(!fileWatchers.containsKey(body.getSite())){
-            try{
-                LaravelLogWatcher watcher = new LaravelLogWatcher(body.getSite());
-                watcher.startWatching();
-                fileWatchers.put(body.getSite(), watcher);
-            }catch (IOException e){
-                log.error("Failed to start watcher : {}", e.getMessage(), e);
-            }
+        LaravelLogFilter filter = body.getFilter() != null ? body.getFilter() : new LaravelLogFilter();
+        Predicate<LaravelLog> predicate;
+        try {
+            predicate = filter.compile();
+        } catch (IllegalArgumentException e) {
+            sendError(session, "Invalid filter: " + e.getMessage());
+            return;
+        }
+        if (!watcherService.isSite(body.getSite())) {
+            sendError(session, "Unknown site: " + body.getSite());
+            return;
         }
 
-        LaravelLogWatcher watcher = fileWatchers.get(body.getSite());
-        watcher.addListener(newListener(session));
+        if (body.getCursor() != null) {
+            sendPage(session, body, filter.isEmpty() ? null : predicate);
+            return;
+        }
 
         log.info("New site received: {}", body.getSite());
-        var stats = laravelService.loadStats(body.getSite());
-
-        try {
-            session.sendMessage(new TextMessage(mapper.writeValueAsString(stats)));
-        }catch (IOException e){
-            log.error("Failed to send data to lara-sock on connection: {}", e.getMessage(), e);
-        }
+        subscribe(session.getId(), body.getSite(), filter, body.getResumeFrom());
     }
 
-    @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        LaravelLogWatcher watcher = fileWatchers.get(sessionSite.get(session.getId()));
-        watcher.removeListenerBySession(session.getId());
+    /**
+     * Stream a site's live entries as server-sent events, through the same fan-out, filters and
+     * bounded queue as a socket. Nothing holds a thread while the stream idles, events are written
+     * by the send executor. Throws IllegalArgumentException for an invalid filter.
+     */
+    public SseEmitter stream(String site, LaravelLogFilter filter, Long resumeFrom) {
+        filter.compile();
+        // Open until the client goes away
+        SseEmitter emitter = new SseEmitter(0L);
+        String id = "sse-" + UUID.randomUUID();
+        LaravelSseOutlet outlet = new LaravelSseOutlet(id, emitter, () -> closed(id));
+        LaravelSessionSender sender = new LaravelSessionSender(outlet, mapper, sendExecutor,
+                properties.getSessionQueueCapacity(), properties.getOverflowPolicy(), LaravelWireFormat.JSON, metrics);
+        sessionSenders.put(id, sender);
+        // Written by the sender's drain, a stalled client never blocks the scheduler
+        long heartbeatMs = properties.getSseHeartbeatMs();
+        sseHeartbeats.put(id, batchScheduler.scheduleWithFixedDelay(sender::sendHeartbeat,
+                heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS));
+        emitter.onCompletion(() -> closed(id));
+        emitter.onTimeout(() -> closed(id));
+        emitter.onError(error -> closed(id));
+        subscribe(id, site, filter, resumeFrom);
+        return emitter;
     }
 
-    private LogEventListener newListener(WebSocketSession session){
-        return new LogEventAdapter(session) {
-            @Override
-            public void onNewLogEntry(LaravelLog logEntry) {
-                log.info("==== Trying on new log entry");
-                try{
-                    var msg =new HashMap <String, String>();
-                    msg.put("type", "update");
-                    msg.put("mode", "single");
-                    msg.put("data", logEntry.toString());
-                    session.sendMessage(new TextMessage(mapper.writeValueAsString(msg)));
-                } catch (IOException e) {
-                    log.error("Failed to send message to lara-sock: {}", e.getMessage(), e);
+    // Move the session over to a site's live entries and send it that site's snapshot, or with resumeFrom
+    // just the entries logged after that offset when they can still be read
+    private void subscribe(String id, String site, LaravelLogFilter filter, Long resumeFrom) {
+        unsubscribe(id);
+
+        LaravelSessionSender sender = sessionSenders.get(id);
+        LaravelSessionListener listener = new LaravelSessionListener(site, filter, properties, sender, batchScheduler);
+        sessionSite.put(id, site);
+        sessionListeners.put(id, listener);
+        LaravelSiteFanout fanout = fanoutFor(site);
+        Predicate<LaravelLog> predicate = filter.isEmpty() ? null : filter.compile();
+        LaravelLogWatcher watcher = laravelService.getWatcher(site);
+        if (resumeFrom != null) {
+            boolean[] resumed = new boolean[1];
+            watcher.withReplay(resumeFrom, properties.getReplayMaxBytes(), missed -> {
+                if (missed == null) {
+                    return;
                 }
+                var msg = new HashMap<String, Object>();
+                msg.put("type", "replay");
+                msg.put("resumeFrom", resumeFrom);
+                msg.put("data", predicate == null ? missed : filter(missed, predicate));
+                sender.sendControl(msg, missed.isEmpty() ? resumeFrom : missed.get(missed.size() - 1).getOffset());
+                fanout.add(listener);
+                resumed[0] = true;
+            });
+            if (resumed[0]) {
+                return;
             }
+            log.debug("Offset {} of {} can't be resumed from, sending a snapshot", resumeFrom, site);
+        }
+        watcher.withStats(stats -> {
+            List<LaravelLog> logs = stats.getLogs();
+            long newest = logs.isEmpty() ? -1 : logs.get(logs.size() - 1).getOffset();
+            sender.sendControl(predicate == null ? stats : filtered(stats, predicate), newest);
+            fanout.add(listener);
+        });
+    }
 
-            @Override
-            public void onLogEntriesAdded(List<LaravelLog> logEntries) {
-                /*try{
-                    var msg =new HashMap <String, String>();
-                    msg.put("type", "update");
-                    msg.put("mode", "multiple");
-                    msg.put("data", mapper.writeValueAsString(logEntries));
-                    session.sendMessage(new TextMessage(mapper.writeValueAsString(msg)));
-                } catch (IOException e) {
-                    log.error("Failed to send message to lara-sock: {}", e.getMessage(), e);
-                }
-                 */
+    // Snapshot with only the recent entries the filter lets through, the counts stay site-wide
+    private static LaravelStateStats filtered(LaravelStateStats stats, Predicate<LaravelLog> predicate) {
+        stats.setLogs(filter(stats.getLogs(), predicate));
+        return stats;
+    }
+
+    private static List<LaravelLog> filter(List<LaravelLog> logs, Predicate<LaravelLog> predicate) {
+        return logs.stream().filter(predicate).toList();
+    }
+
+    private LaravelSiteFanout fanoutFor(String site) {
+        return siteFanouts.computeIfAbsent(site, (key) -> {
+            LaravelSiteFanout fanout = new LaravelSiteFanout(mapper);
+            laravelService.getWatcher(key).addListener(fanout);
+            return fanout;
+        });
+    }
+
+    private void unsubscribe(String id) {
+        String site = sessionSite.remove(id);
+        LaravelSessionListener listener = sessionListeners.remove(id);
+        if (listener != null) {
+            LaravelSiteFanout fanout = site == null ? null : siteFanouts.get(site);
+            if (fanout != null) {
+                fanout.remove(listener);
             }
-        };
+            listener.close();
+        }
+    }
+
+    // Older history for a client that scrolled past its snapshot
+    private void sendPage(WebSocketSession session, MessageBody body, Predicate<LaravelLog> predicate) {
+        var page = laravelService.loadPage(body.getSite(), body.getCursor(), body.getLimit());
+        if (predicate != null) {
+            page.setLogs(filter(page.getLogs(), predicate));
+        }
+        var msg = new HashMap<String, Object>();
+        msg.put("type", "page");
+        msg.put("data", page);
+        sessionSenders.get(session.getId()).sendControl(msg);
+    }
+
+    private void sendError(WebSocketSession session, String error) {
+        var msg = new HashMap<String, Object>();
+        msg.put("type", "error");
+        msg.put("message", error);
+        sessionSenders.get(session.getId()).sendControl(msg);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        closed(session.getId());
+    }
+
+    private void closed(String id) {
+        ScheduledFuture<?> heartbeat = sseHeartbeats.remove(id);
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        unsubscribe(id);
+        LaravelSessionSender sender = sessionSenders.remove(id);
+        if (sender != null) {
+            sender.close();
+        }
     }
 }
 
 @Data
 class MessageBody {
     private String site;
+    // Set to request the page of history before this cursor instead of subscribing
+    private String cursor;
+    private Integer limit;
+    // Only entries matching this are pushed to the session, null for everything
+    private LaravelLogFilter filter;
+    // Offset of the last entry the client got, to be sent only what it missed instead of a snapshot
+    private Long resumeFrom;
 }
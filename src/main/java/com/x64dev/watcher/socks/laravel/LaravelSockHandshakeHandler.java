@@ -0,0 +1,31 @@
+package com.x64dev.watcher.socks.laravel;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * permessage-deflate is left to the container for clients that offer it, except
+ * when they asked for ?compress=deflate: their frames are already compressed,
+ * once per entry rather than once per session.
+ */
+class LaravelSockHandshakeHandler extends DefaultHandshakeHandler {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions,
+                supportedExtensions);
+        String compress = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("compress");
+        if (!"deflate".equals(compress)) {
+            return extensions;
+        }
+        return extensions.stream().filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName())).toList();
+    }
+}
@@ -1,5 +1,6 @@
 package com.x64dev.watcher.socks.laravel;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.socket.WebSocketHandler;
@@ -18,6 +19,13 @@ public class LaravelSockInterceptor implements HandshakeInterceptor {
             var pairItems = pair.split("=");
             attributes.put(pairItems[0], pairItems[1]);
         }
+        // Refuse an encoding or compression we can't speak before upgrading
+        try {
+            LaravelWireFormat.of(attributes);
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
         return true;
     }
 
@@ -0,0 +1,56 @@
+package com.x64dev.watcher.socks.laravel;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+
+/**
+ * A lara-sock JSON message per SSE event. The event id is the offset of the
+ * newest entry the client has been brought up to, so a reconnecting
+ * EventSource sends it back as Last-Event-ID to resume from there.
+ */
+class LaravelSseOutlet implements LaravelOutlet {
+
+    private final String id;
+    private final SseEmitter emitter;
+    // Run when a heartbeat finds the client gone
+    private final Runnable onGone;
+
+    LaravelSseOutlet(String id, SseEmitter emitter, Runnable onGone) {
+        this.id = id;
+        this.emitter = emitter;
+        this.onGone = onGone;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void send(WebSocketMessage<?> message, long lastOffset) throws IOException {
+        // Always text, SSE streams only get plain JSON
+        SseEmitter.SseEventBuilder event = SseEmitter.event().data(((TextMessage) message).getPayload());
+        if (lastOffset >= 0) {
+            event.id(Long.toString(lastOffset));
+        }
+        emitter.send(event);
+    }
+
+    // An SSE comment, the container only notices a client went away when a write fails
+    @Override
+    public void heartbeat() {
+        try {
+            emitter.send(SseEmitter.event().comment(""));
+        } catch (IOException | IllegalStateException e) {
+            onGone.run();
+        }
+    }
+
+    @Override
+    public void closeSlow() {
+        emitter.complete();
+    }
+}
@@ -0,0 +1,160 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelReadTrace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodings a lara-sock client can ask for with ?encoding= on the handshake.
+ * Every encoding carries the same messages as the JSON one. Update frames are
+ * stitched from entries encoded on their own, so an entry is encoded once per
+ * encoding however many sessions get it: a prefix up to the "data" value, the
+ * entries, then the closing bytes. Smile is written without shared name and
+ * value references for that, and CBOR with indefinite-length maps and arrays.
+ * The binary mappers are copies of the application's mapper on their own
+ * factory, so modules and settings such as the date format match the JSON.
+ */
+enum LaravelWireEncoding {
+    JSON(null, null, bytes(","), bytes("]"), bytes("}")),
+    SMILE(smileFactory(true), smileFactory(false), new byte[0], new byte[]{(byte) 0xF9}, new byte[]{(byte) 0xFB}),
+    CBOR(new CBORFactory(), new CBORFactory(), new byte[0], new byte[]{(byte) 0xFF}, new byte[]{(byte) 0xFF});
+
+    // Whole messages, and the prefix of an update frame
+    private final JsonFactory messageFactory;
+    // Single entries inside an update frame
+    private final JsonFactory entryFactory;
+    // Copies of the application's mapper on those factories, there is normally just the one
+    private final Map<ObjectMapper, ObjectMapper> messageMappers = new ConcurrentHashMap<>();
+    private final Map<ObjectMapper, ObjectMapper> entryMappers = new ConcurrentHashMap<>();
+    private final byte[] separator;
+    private final byte[] singleEnd;
+    private final byte[] multipleEnd;
+    // Prefixes without a trace never change
+    private final byte[] singlePrefix;
+    private final byte[] multiplePrefix;
+
+    LaravelWireEncoding(JsonFactory messageFactory, JsonFactory entryFactory, byte[] separator, byte[] arrayEnd,
+                        byte[] objectEnd) {
+        this.messageFactory = messageFactory;
+        this.entryFactory = entryFactory;
+        this.separator = separator;
+        this.singleEnd = objectEnd;
+        this.multipleEnd = new byte[arrayEnd.length + objectEnd.length];
+        System.arraycopy(arrayEnd, 0, multipleEnd, 0, arrayEnd.length);
+        System.arraycopy(objectEnd, 0, multipleEnd, arrayEnd.length, objectEnd.length);
+        try {
+            this.singlePrefix = buildPrefix("single", null, 0);
+            this.multiplePrefix = buildPrefix("multiple", null, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The encoding named by a handshake parameter, JSON when there is none
+     */
+    static LaravelWireEncoding of(String name) {
+        if (name == null || name.isBlank()) {
+            return JSON;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown encoding " + name + ", expected json, smile or cbor");
+        }
+    }
+
+    /**
+     * A whole message, written like the application's mapper would
+     */
+    byte[] message(Object message, ObjectMapper mapper) throws IOException {
+        return mapper(messageFactory, messageMappers, mapper).writeValueAsBytes(message);
+    }
+
+    byte[] entry(LaravelLog entry, ObjectMapper mapper) throws IOException {
+        return mapper(entryFactory, entryMappers, mapper).writeValueAsBytes(entry);
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory, Map<ObjectMapper, ObjectMapper> copies, ObjectMapper mapper) {
+        return factory == null ? mapper : copies.computeIfAbsent(mapper, application -> application.copyWith(factory));
+    }
+
+    // {"type":"update","mode":..., in tracing mode "trace":{...}, then "data": and for "multiple" the opening [
+    byte[] updatePrefix(String mode, LaravelReadTrace trace, long sentMicros) throws IOException {
+        if (trace == null) {
+            return "multiple".equals(mode) ? multiplePrefix : singlePrefix;
+        }
+        return buildPrefix(mode, trace, sentMicros);
+    }
+
+    private byte[] buildPrefix(String mode, LaravelReadTrace trace, long sentMicros) throws IOException {
+        boolean multiple = "multiple".equals(mode);
+        // JSON has no factory of its own, and the constants aren't assigned yet while this runs from the constructor
+        if (messageFactory == null) {
+            StringBuilder prefix = new StringBuilder("{\"type\":\"update\",\"mode\":\"").append(mode).append('"');
+            if (trace != null) {
+                prefix.append(",\"trace\":{\"source\":\"").append(trace.source())
+                        .append("\",\"written\":").append(trace.writtenMicros())
+                        .append(",\"detected\":").append(trace.detectedMicros())
+                        .append(",\"parsed\":").append(trace.parsedMicros())
+                        .append(",\"sent\":").append(sentMicros).append('}');
+            }
+            return bytes(prefix.append(",\"data\":").append(multiple ? "[" : "").toString());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        JsonGenerator generator = messageFactory.createGenerator(out);
+        generator.writeStartObject();
+        generator.writeStringField("type", "update");
+        generator.writeStringField("mode", mode);
+        if (trace != null) {
+            generator.writeObjectFieldStart("trace");
+            generator.writeStringField("source", trace.source());
+            generator.writeNumberField("written", trace.writtenMicros());
+            generator.writeNumberField("detected", trace.detectedMicros());
+            generator.writeNumberField("parsed", trace.parsedMicros());
+            generator.writeNumberField("sent", sentMicros);
+            generator.writeEndObject();
+        }
+        generator.writeFieldName("data");
+        if (multiple) {
+            generator.writeStartArray();
+        }
+        // Not closed, that would close the object too
+        generator.flush();
+        return out.toByteArray();
+    }
+
+    // Goes between two entries of a "multiple" frame
+    byte[] separator() {
+        return separator;
+    }
+
+    // Closes what updatePrefix opened
+    byte[] updateSuffix(String mode) {
+        return "multiple".equals(mode) ? multipleEnd : singleEnd;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static SmileFactory smileFactory(boolean header) {
+        return SmileFactory.builder()
+                .configure(SmileGenerator.Feature.WRITE_HEADER, header)
+                .disable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .disable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Deflater;
+
+/**
+ * What a session's messages look like on the wire, from the handshake's
+ * ?encoding=json|smile|cbor and ?compress=deflate. Plain JSON goes out as text
+ * frames like it always has, everything else as binary frames.
+ *
+ * With deflate a frame is one raw deflate stream (inflate it like
+ * DecompressionStream("deflate-raw")). Each entry is compressed on its own and
+ * sync-flushed, so its chunk is cached on the shared payload and concatenated
+ * into every session's frame instead of compressing per session the way
+ * permessage-deflate does. Sessions that ask for it don't also get
+ * permessage-deflate, see LaravelSockHandshakeHandler.
+ */
+record LaravelWireFormat(LaravelWireEncoding encoding, boolean deflate) {
+
+    static final LaravelWireFormat JSON = new LaravelWireFormat(LaravelWireEncoding.JSON, false);
+
+    // Deflaters are costly to set up, a few are kept for reuse
+    private static final int POOLED_DEFLATERS = 8;
+    private static final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    // Deflate chunks of the frame parts that never change, keyed by the part's array itself
+    private static final Map<byte[], byte[]> deflatedParts = new ConcurrentHashMap<>();
+
+    /**
+     * The format asked for by the handshake query parameters
+     */
+    static LaravelWireFormat of(Map<String, Object> attributes) {
+        Object encoding = attributes.get("encoding");
+        Object compress = attributes.get("compress");
+        if (compress != null && !"deflate".equals(compress) && !"none".equals(compress)) {
+            throw new IllegalArgumentException("Unknown compression " + compress + ", expected deflate or none");
+        }
+        return new LaravelWireFormat(LaravelWireEncoding.of(encoding == null ? null : encoding.toString()),
+                "deflate".equals(compress));
+    }
+
+    boolean isText() {
+        return encoding == LaravelWireEncoding.JSON && !deflate;
+    }
+
+    /**
+     * A snapshot, page, gap or error message
+     */
+    WebSocketMessage<?> message(Object message, ObjectMapper mapper) throws IOException {
+        if (isText()) {
+            return new TextMessage(mapper.writeValueAsString(message));
+        }
+        byte[] bytes = encoding.message(message, mapper);
+        return new BinaryMessage(deflate ? deflate(bytes, true) : bytes);
+    }
+
+    /**
+     * A "single" or "multiple" update, trace is the oldest entry's in tracing mode
+     */
+    WebSocketMessage<?> update(String mode, List<LaravelLogPayload> entries, LaravelReadTrace trace,
+                               long sentMicros) throws IOException {
+        if (isText()) {
+            String frame = "single".equals(mode) ? entries.get(0).singleFrame() : LaravelLogPayload.multipleFrame(entries);
+            return new TextMessage(trace == null ? frame : LaravelLogPayload.tracedFrame(frame, trace, sentMicros));
+        }
+        byte[] prefix = encoding.updatePrefix(mode, trace, sentMicros);
+        byte[] separator = encoding.separator();
+        byte[] suffix = encoding.updateSuffix(mode);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(prefix.length + entries.size() * 256);
+        frame.writeBytes(!deflate ? prefix : trace == null ? part(prefix, false) : deflate(prefix, false));
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0 && separator.length > 0) {
+                frame.writeBytes(deflate ? part(separator, false) : separator);
+            }
+            LaravelLogPayload payload = entries.get(i);
+            frame.writeBytes(deflate ? payload.deflated(encoding) : payload.encoded(encoding));
+        }
+        frame.writeBytes(deflate ? part(suffix, true) : suffix);
+        return new BinaryMessage(frame.toByteArray());
+    }
+
+    private static byte[] part(byte[] bytes, boolean last) {
+        return deflatedParts.computeIfAbsent(bytes, part -> deflate(part, last));
+    }
+
+    /**
+     * Raw deflate of the input on its own. Unless it is the last, it ends in a sync flush
+     * so it can be followed by another chunk in the same stream.
+     */
+    static byte[] deflate(byte[] input, boolean last) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        try {
+            deflater.setInput(input);
+            if (last) {
+                deflater.finish();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[Math.min(64 * 1024, input.length + 64)];
+            while (true) {
+                int length = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, length);
+                // A flush that filled the buffer may have more to give
+                if (last ? deflater.finished() : length < buffer.length) {
+                    return out.toByteArray();
+                }
+            }
+        } finally {
+            deflater.reset();
+            if (deflaters.size() < POOLED_DEFLATERS) {
+                deflaters.offer(deflater);
+            } else {
+                deflater.end();
+            }
+        }
+    }
+}
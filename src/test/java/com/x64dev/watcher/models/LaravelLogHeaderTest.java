@@ -0,0 +1,175 @@
+package com.x64dev.watcher.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Differential test of the scanner against the regex header parsing it replaced.
+ */
+class LaravelLogHeaderTest {
+
+    private static final Path BUNDLED_LOG = Paths.get("src/main/java/com/x64dev/watcher/files/laravel.log");
+
+    private static final Pattern LOG_PATTERN = Pattern.compile(
+            "\\[(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\]\\s+(\\w+\\.\\w+):\\s+(.+)"
+    );
+
+    private static final Pattern KEY_VALUE_PATTERN = Pattern.compile("(\\w+):\\s*([^\\n]+)");
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Test
+    void matchesRegexOnEveryBundledLine() throws IOException {
+        for (String line : Files.readAllLines(BUNDLED_LOG)) {
+            assertSameHeader(line);
+        }
+    }
+
+    @Test
+    void matchesRegexOnEdgeCases() {
+        List<String> lines = List.of(
+                "[2025-07-03 12:41:12] production.INFO: Stripe Web hook",
+                "[2025-07-03 12:41:12]\tlocal.ERROR:\tTabs",
+                "[2025-07-03 12:41:12]   local.WARNING:    padded  ",
+                "[2025-07-03 12:41:12] local.custom_level: lower case level",
+                "[2025-04-31 23:59:59] local.DEBUG: clamped to April 30th",
+                "[2024-02-29 00:00:00] local.NOTICE: leap day",
+                "[2025-07-03 12:41:12] local.INFO:  ",
+                "[2025-07-03 12:41:12] local.INFO: x",
+                "[2025-07-03 12:41:12] local.INFO:",
+                "[2025-07-03 12:41:12] local.INFO:no space",
+                "[2025-07-03 12:41:12] INFO: no environment",
+                "[2025-07-03 12:41:12] a.b.c: two dots",
+                "[2025-07-03 12:41:12]local.INFO: no space after bracket",
+                "[2025-7-03 12:41:12] local.INFO: short month",
+                "[2025-07-03T12:41:12] local.INFO: iso separator",
+                "    \"id\": \"pi_3RgmRAAurBH0amWz1LAKiGTi\",",
+                "#0 /var/www/app/Http/Kernel.php(12): handle()",
+                "",
+                "["
+        );
+        for (String line : lines) {
+            assertSameHeader(line);
+        }
+    }
+
+    @Test
+    void parsesBundledLogLikeTheRegexParser() throws IOException {
+        List<LaravelLog> expected = regexParse(BUNDLED_LOG);
+        List<LaravelLog> actual = LaravelLogParser.parseLogFile(BUNDLED_LOG.toString());
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LaravelLog want = expected.get(i), got = actual.get(i);
+            assertEquals(want.getTimestamp(), got.getTimestamp());
+            assertEquals(want.getLevel(), got.getLevel());
+            assertEquals(want.getMessage(), got.getMessage());
+            assertEquals(want.getContext(), got.getContext());
+            assertEquals(want.getStackTrace(), got.getStackTrace());
+            // Compared as maps, a HashMap's iteration order was never part of the output
+            assertEquals(want.getAdditionalData(), got.getAdditionalData());
+        }
+    }
+
+    @Test
+    void recognisesStackFrames() {
+        assertTrue(LaravelLogHeader.isStackFrame("#0 /var/www/index.php(52): handle()"));
+        assertTrue(LaravelLogHeader.isStackFrame("#12 {main}"));
+        assertFalse(LaravelLogHeader.isStackFrame("# heading"));
+        assertFalse(LaravelLogHeader.isStackFrame("#"));
+        assertFalse(LaravelLogHeader.isStackFrame(" #0 indented"));
+    }
+
+    private static void assertSameHeader(String line) {
+        Matcher matcher = LOG_PATTERN.matcher(line);
+        LaravelLog entry = LaravelLogHeader.parse(line);
+        if (!matcher.find()) {
+            assertNull(entry, line);
+            return;
+        }
+        assertNotNull(entry, line);
+        String[] levelParts = matcher.group(2).split("\\.");
+        assertEquals(LocalDateTime.parse(matcher.group(1), DATE_FORMATTER), entry.getTimestamp(), line);
+        assertEquals(levelParts.length > 1 ? levelParts[1] : matcher.group(2), entry.getLevel(), line);
+        assertEquals(matcher.group(3), entry.getMessage(), line);
+    }
+
+    // LaravelLogParser as it was before the scanner, kept here so the oracle doesn't move with the parser
+    private static List<LaravelLog> regexParse(Path file) throws IOException {
+        List<LaravelLog> entries = new ArrayList<>();
+        LaravelLog current = null;
+        StringBuilder multiLineContent = new StringBuilder();
+        for (String line : Files.readAllLines(file)) {
+            Matcher matcher = LOG_PATTERN.matcher(line);
+            if (matcher.find()) {
+                if (current != null) {
+                    regexFinalize(current, multiLineContent.toString());
+                    entries.add(current);
+                }
+                current = new LaravelLog();
+                current.setTimestamp(LocalDateTime.parse(matcher.group(1), DATE_FORMATTER));
+                String[] levelParts = matcher.group(2).split("\\.");
+                current.setLevel(levelParts.length > 1 ? levelParts[1] : matcher.group(2));
+                current.setMessage(matcher.group(3));
+                multiLineContent = new StringBuilder();
+            } else if (current != null) {
+                multiLineContent.append(line).append("\n");
+            }
+        }
+        if (current != null) {
+            regexFinalize(current, multiLineContent.toString());
+            entries.add(current);
+        }
+        return entries;
+    }
+
+    private static void regexFinalize(LaravelLog entry, String additionalContent) {
+        if (additionalContent.trim().isEmpty()) {
+            return;
+        }
+        StringBuilder contextBuilder = new StringBuilder();
+        StringBuilder stackTraceBuilder = new StringBuilder();
+        boolean inStackTrace = false;
+        for (String line : additionalContent.split("\n")) {
+            if (line.trim().isEmpty()) continue;
+            if (line.contains("Stack trace:") || line.contains("#0 ") || line.matches("^#\\d+.*")) {
+                inStackTrace = true;
+            }
+            if (inStackTrace) {
+                stackTraceBuilder.append(line).append("\n");
+            } else {
+                contextBuilder.append(line).append("\n");
+            }
+        }
+        entry.setContext(contextBuilder.toString().trim());
+        entry.setStackTrace(stackTraceBuilder.toString().trim());
+
+        String context = contextBuilder.toString();
+        Matcher matcher = KEY_VALUE_PATTERN.matcher(context);
+        while (matcher.find()) {
+            entry.addAdditionalData(matcher.group(1), matcher.group(2).trim());
+        }
+        int startBrace = context.indexOf('{');
+        int endBrace = context.lastIndexOf('}');
+        if (startBrace != -1 && endBrace > startBrace) {
+            entry.addAdditionalData("json_data", context.substring(startBrace, endBrace + 1));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.x64dev.watcher.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LaravelLogParserTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START = LocalDateTime.of(2025, 7, 3, 0, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void timeRangeMatchesFullScanDespiteSkew() throws IOException {
+        Path file = skewedLog(20000);
+        List<LaravelLog> all = LaravelLogParser.parseLogFile(file.toString());
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime from = START.plusSeconds(random.nextInt(20000));
+            LocalDateTime to = from.plusSeconds(random.nextInt(300));
+            List<String> expected = all.stream()
+                    .filter(entry -> !entry.getTimestamp().isBefore(from) && !entry.getTimestamp().isAfter(to))
+                    .map(LaravelLog::toString)
+                    .toList();
+
+            List<String> actual = LaravelLogParser.parseTimeRange(file.toString(), from, to, Integer.MAX_VALUE,
+                    Duration.ofSeconds(60)).stream().map(LaravelLog::toString).toList();
+            assertEquals(expected, actual, from + " - " + to);
+        }
+    }
+
+    @Test
+    void parallelParseMatchesSequential() throws IOException {
+        // Big enough for a few ranges of the 1 MB minimum split
+        Path file = skewedLog(60000);
+        List<LaravelLog> sequential = new ArrayList<>();
+        long sequentialConsumed = LaravelLogParser.parseLogFile(file.toString(), sequential::add);
+        List<LaravelLog> parallel = new ArrayList<>();
+        long parallelConsumed = LaravelLogParser.parseLogFileParallel(file.toString(), 4, parallel::add);
+
+        assertEquals(sequentialConsumed, parallelConsumed);
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).toString(), parallel.get(i).toString());
+            assertEquals(sequential.get(i).getOffset(), parallel.get(i).getOffset());
+        }
+    }
+
+    @Test
+    void gzipArchiveParsesLikeThePlainFile() throws IOException {
+        Path plain = skewedLog(3000);
+        Path gzip = dir.resolve("laravel-2025-07-03.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            Files.copy(plain, out);
+        }
+
+        List<String> expected = LaravelLogParser.parseLogFile(plain.toString()).stream().map(LaravelLog::toString).toList();
+        assertEquals(expected, LaravelLogParser.parseLogFile(gzip.toString()).stream().map(LaravelLog::toString).toList());
+
+        List<LaravelLog> tail = new ArrayList<>();
+        long start = LaravelLogParser.parseLogFile(plain.toString()).get(100).getOffset();
+        LaravelLogParser.parseRange(gzip.toString(), start, Long.MAX_VALUE, tail::add);
+        assertEquals(expected.subList(100, expected.size()), tail.stream().map(LaravelLog::toString).toList());
+    }
+
+    @Test
+    void timeRangeStopsAtLimitAndOutsideTheFile() throws IOException {
+        Path file = skewedLog(2000);
+        List<LaravelLog> limited = LaravelLogParser.parseTimeRange(file.toString(), START.plusSeconds(500),
+                START.plusSeconds(900), 5, Duration.ofSeconds(60));
+        assertEquals(5, limited.size());
+        assertTrue(LaravelLogParser.parseTimeRange(file.toString(), START.minusDays(1), START.minusSeconds(1),
+                10, Duration.ofSeconds(60)).isEmpty());
+        assertTrue(LaravelLogParser.parseTimeRange(file.toString(), START.plusDays(1), START.plusDays(2),
+                10, Duration.ofSeconds(60)).isEmpty());
+    }
+
+    // One entry per second, some with stack traces, and every so often a worker that logs up to 30s late
+    private Path skewedLog(int entries) throws IOException {
+        Path file = dir.resolve("laravel.log");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < entries; i++) {
+                LocalDateTime time = START.plusSeconds(i);
+                if (random.nextInt(20) == 0) {
+                    time = time.minusSeconds(random.nextInt(30));
+                }
+                writer.write("[" + time.format(FORMAT) + "] production.INFO: entry " + i + "\n");
+                if (i % 13 == 0) {
+                    writer.write("[stacktrace]\n#0 /var/www/app/Jobs/Sync.php(12): handle()\n#1 {main}\n");
+                }
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,97 @@
+package com.x64dev.watcher.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.config.JacksonMapperConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LaravelLogTest {
+
+    private final ObjectMapper mapper = new JacksonMapperConfig().objectMapper();
+
+    @Test
+    void serializesLikeThePlainFieldsDid() throws Exception {
+        LaravelLog entry = LaravelLogHeader.parse("[2025-07-03 10:15:30] production.ERROR: Zahlung fehlgeschlagen für €12");
+        entry.setContext("{\"userId\":42}");
+        entry.setStackTrace("#0 {main}");
+        entry.setOffset(1234);
+
+        assertEquals("{\"timestamp\":[2025,7,3,10,15,30],\"level\":\"ERROR\","
+                + "\"message\":\"Zahlung fehlgeschlagen für €12\",\"context\":\"{\\\"userId\\\":42}\","
+                + "\"stackTrace\":\"#0 {main}\",\"additionalData\":{},\"offset\":1234}",
+                mapper.writeValueAsString(entry));
+    }
+
+    @Test
+    void partsCanBeSetInAnyOrder() {
+        LaravelLog entry = new LaravelLog();
+        assertNull(entry.getMessage());
+        assertNull(entry.getTimestamp());
+        entry.setStackTrace("trace");
+        entry.setMessage("message");
+        entry.setContext("");
+        entry.setMessage("a longer message");
+        entry.setTimestamp(LocalDateTime.of(2025, 7, 3, 23, 59, 59));
+
+        assertEquals("a longer message", entry.getMessage());
+        assertEquals("", entry.getContext());
+        assertEquals("trace", entry.getStackTrace());
+        assertEquals(LocalDateTime.of(2025, 7, 3, 23, 59, 59), entry.getTimestamp());
+        entry.setContext(null);
+        assertNull(entry.getContext());
+        assertEquals("trace", entry.getStackTrace());
+    }
+
+    @Test
+    void stagedPartsAreEncodedOnceWhenSealed() {
+        LaravelLog entry = new LaravelLog();
+        entry.setMessage("für €12");
+        entry.setContext("{}");
+        assertEquals(12, entry.textBytes());
+        entry.seal();
+        assertEquals(12, entry.textBytes());
+        assertEquals("für €12", entry.getMessage());
+        assertEquals("{}", entry.getContext());
+        assertNull(entry.getStackTrace());
+
+        entry.setStackTrace("#0 {main}");
+        entry.seal();
+        assertEquals("für €12", entry.getMessage());
+        assertEquals("#0 {main}", entry.getStackTrace());
+        assertEquals(21, entry.textBytes());
+    }
+
+    @Test
+    void continuationLinesAreSplitWhenRead() {
+        LaravelLog entry = LaravelLogHeader.parse("[2025-07-03 10:15:30] production.ERROR: Sync failed");
+        LaravelLogParser.finalizeLogEntry(entry, "\n  userId: 42\n{\"order\":7}\n[stacktrace]\n#0 /app/Sync.php(12): run()\n#1 {main}\n");
+
+        assertEquals("userId: 42\n{\"order\":7}\n[stacktrace]", entry.getContext());
+        assertEquals("#0 /app/Sync.php(12): run()\n#1 {main}", entry.getStackTrace());
+        assertEquals(Map.of("userId", "42", "json_data", "{\"order\":7}"), entry.getAdditionalData());
+        // Split once, then served from the cache
+        assertSame(entry.getContext(), entry.getContext());
+        assertSame(entry.getAdditionalData(), entry.getAdditionalData());
+
+        // Setting one part keeps the others
+        entry.setStackTrace(null);
+        assertEquals("userId: 42\n{\"order\":7}\n[stacktrace]", entry.getContext());
+        assertEquals("42", entry.getAdditionalData().get("userId"));
+        assertEquals("Sync failed", entry.getMessage());
+    }
+
+    @Test
+    void standardLevelsShareOneString() {
+        LaravelLog entry = new LaravelLog();
+        entry.setLevel(new String("WARNING"));
+        assertSame(LaravelLogHeader.parse("[2025-07-03 10:15:30] local.WARNING: x").getLevel(), entry.getLevel());
+        entry.setLevel("custom");
+        assertEquals("custom", entry.getLevel());
+    }
+}
@@ -0,0 +1,92 @@
+package com.x64dev.watcher.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LogLineReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsMultiByteCharactersWholeAcrossTheBuffer() throws IOException {
+        // 'é' is 2 bytes and '€' 3, with a 4 byte buffer both straddle a refill
+        Path file = write("aé€b\nü€\n");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LogLineReader reader = new LogLineReader(channel, 0, 4);
+            assertEquals("aé€b", reader.readLine(false));
+            assertEquals(0, reader.lineStart());
+            assertEquals(8, reader.position());
+            assertEquals("ü€", reader.readLine(false));
+            assertEquals(8, reader.lineStart());
+            assertEquals(14, reader.position());
+            assertNull(reader.readLine(false));
+        }
+    }
+
+    @Test
+    void dropsTheCarriageReturnButCountsIt() throws IOException {
+        Path file = write("one\r\ntwo\r\n\r\n");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LogLineReader reader = new LogLineReader(channel, 0, 3);
+            assertEquals("one", reader.readLine(false));
+            assertEquals("two", reader.readLine(false));
+            assertEquals(5, reader.lineStart());
+            assertEquals("", reader.readLine(false));
+            assertEquals(12, reader.position());
+            assertNull(reader.readLine(false));
+        }
+    }
+
+    @Test
+    void holdsBackALastLineWithoutNewline() throws IOException {
+        Path file = write("first\nsec");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LogLineReader reader = new LogLineReader(channel, 0, 4);
+            assertEquals("first", reader.readLine(false));
+            assertNull(reader.readLine(false));
+            assertEquals(6, reader.position());
+            assertEquals(3, reader.pendingBytes());
+
+            // The rest arrives, the line is read whole from where it started
+            Files.writeString(file, "ond\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            assertEquals("second", reader.readLine(false));
+            assertEquals(6, reader.lineStart());
+            assertEquals(13, reader.position());
+
+            // Unless the caller says the file is final
+            Files.writeString(file, "third", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            assertEquals("third", reader.readLine(true));
+            assertEquals(18, reader.position());
+            assertEquals(0, reader.pendingBytes());
+        }
+    }
+
+    @Test
+    void readsLinesLongerThanTheBuffer() throws IOException {
+        String longLine = "x".repeat(1000) + "é".repeat(500);
+        Path file = write(longLine + "\nshort\n");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LogLineReader reader = new LogLineReader(channel, 0, 16);
+            assertEquals(longLine, reader.readLine(false));
+            assertEquals("short", reader.readLine(false));
+            assertEquals(2001, reader.lineStart());
+        }
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = dir.resolve("laravel.log");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return file;
+    }
+}
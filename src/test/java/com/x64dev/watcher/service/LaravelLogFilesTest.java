@@ -0,0 +1,40 @@
+package com.x64dev.watcher.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LaravelLogFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void discoversDaysInOrderWithTheLiveFileLast() throws IOException {
+        for (String name : List.of("laravel-2025-07-03.log", "laravel-2025-07-01.log.gz", "laravel-2025-07-02.log",
+                "laravel-2025-07-02.log.gz", "laravel-2025-13-45.log", "other.log", "laravel.log")) {
+            Files.writeString(dir.resolve(name), "");
+        }
+        // laravel.log last written on the 2nd sorts between the daily files
+        Files.setLastModifiedTime(dir.resolve("laravel.log"), FileTime.from(Instant.parse("2025-07-02T12:00:00Z")));
+
+        List<String> names = LaravelLogFiles.discover(dir).stream().map(path -> path.getFileName().toString()).toList();
+        assertEquals(List.of("laravel-2025-07-01.log.gz", "laravel-2025-07-02.log", "laravel.log",
+                "laravel-2025-07-03.log"), names);
+    }
+
+    @Test
+    void resolvesAnArchivedDayToItsGzip() throws IOException {
+        Files.writeString(dir.resolve("laravel-2025-07-01.log.gz"), "");
+        assertEquals(dir.resolve("laravel-2025-07-01.log.gz"),
+                LaravelLogFiles.resolveArchived(dir.resolve("laravel-2025-07-01.log")));
+    }
+}
@@ -0,0 +1,256 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelStateStats;
+import com.x64dev.watcher.service.LaravelWatchEngine.ChangeSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+class LaravelLogWatcherTest {
+
+    @TempDir
+    Path sidecars;
+
+    private String site;
+    private Path log;
+    private final WatcherProperties properties = new WatcherProperties();
+    private LaravelLogWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // The watcher finds its site under SITES_BASE_URI like it does in the app
+        assumeTrue(System.getenv("SITES_BASE_URI") != null);
+        site = "watcher-" + UUID.randomUUID();
+        log = Paths.get(System.getenv("SITES_BASE_URI"), site, "laravel.log");
+        Files.createDirectories(log.getParent());
+        append(0, 20);
+        // Entries go out with the read that finds them, unless a test waits for continuation lines
+        properties.setOpenEntryGraceMs(0);
+        start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (watcher != null) {
+            watcher.stopWatching();
+            try (var files = Files.list(log.getParent())) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.deleteIfExists(log.getParent());
+        }
+    }
+
+    @Test
+    void offsetsSurviveTheOldestDayBeingDeleted() throws IOException {
+        watcher.stopWatching();
+        Files.delete(log);
+        for (int day = 1; day <= 3; day++) {
+            log = log.resolveSibling("laravel-2025-07-0" + day + ".log");
+            append(day * 10, 5);
+        }
+        start();
+        List<LaravelLog> before = watcher.getStats().getLogs();
+        assertEquals(15, before.size());
+
+        watcher.stopWatching();
+        Files.delete(log.resolveSibling("laravel-2025-07-01.log"));
+        start();
+        List<LaravelLog> after = watcher.getStats().getLogs();
+        assertEquals(before.subList(5, 15).stream().map(LaravelLog::getOffset).toList(),
+                after.stream().map(LaravelLog::getOffset).toList());
+        assertEquals("entry 34", replay(after.get(8).getOffset(), Long.MAX_VALUE).get(0).getMessage());
+    }
+
+    @Test
+    void truncationOnlyForgetsTheTailedFile() throws IOException {
+        watcher.stopWatching();
+        Files.delete(log);
+        log = log.resolveSibling("laravel-2025-07-01.log");
+        append(0, 5);
+        log = log.resolveSibling("laravel-2025-07-02.log");
+        append(5, 5);
+        start();
+        assertEquals(10, watcher.getStats().getTotalCount());
+
+        Files.writeString(log, "");
+        read();
+        append(100, 2);
+        read();
+        LaravelStateStats stats = watcher.getStats();
+        assertEquals(7, stats.getTotalCount());
+        assertEquals(7, stats.getInfoCount());
+        assertEquals(List.of("entry 3", "entry 4", "entry 100", "entry 101"),
+                stats.getLogs().subList(3, 7).stream().map(LaravelLog::getMessage).toList());
+    }
+
+    @Test
+    void keepsTheLastEntryOpenForLinesWrittenLater() throws Exception {
+        watcher.stopWatching();
+        properties.setOpenEntryGraceMs(200);
+        start();
+        Files.writeString(log, "[2025-07-03 10:16:00] production.ERROR: boom\n[stacktrace]\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        read();
+        assertEquals(20, watcher.getStats().getTotalCount());
+        Files.writeString(log, "#0 {main}\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        read();
+        append(21, 1);
+        read();
+
+        List<LaravelLog> logs = watcher.getStats().getLogs();
+        assertEquals(21, logs.size());
+        assertEquals("boom", logs.get(20).getMessage());
+        assertTrue(logs.get(20).getStackTrace().contains("#0 {main}"));
+
+        // Entry 21 goes out once nothing was added to it for the grace period
+        assertFalse(watcher.needsPoll(System.currentTimeMillis(), Long.MAX_VALUE));
+        Thread.sleep(250);
+        assertTrue(watcher.needsPoll(System.currentTimeMillis(), Long.MAX_VALUE));
+        watcher.scheduleRead(ChangeSource.POLL);
+        watcher.runScheduledRead();
+        assertEquals("entry 21", watcher.getStats().getLogs().get(21).getMessage());
+    }
+
+    @Test
+    void findsSearchHitsInAnArchive() throws IOException {
+        watcher.stopWatching();
+        Files.delete(log);
+        log = log.resolveSibling("laravel-2025-07-01.log");
+        append(10, 5);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(log.resolveSibling(log.getFileName() + ".gz")))) {
+            Files.copy(log, out);
+        }
+        Files.delete(log);
+        log = log.resolveSibling("laravel-2025-07-02.log");
+        append(20, 5);
+        // Only the newest two are in memory, the rest come from the files
+        properties.setBufferEntries(2);
+        start();
+
+        List<String> messages = watcher.search("entry", null, 10).getLogs().stream().map(LaravelLog::getMessage).toList();
+        assertEquals(List.of("entry 10", "entry 11", "entry 12", "entry 13", "entry 14",
+                "entry 20", "entry 21", "entry 22", "entry 23", "entry 24"), messages);
+        assertEquals(List.of("entry 13"), watcher.search("13", null, 10).getLogs().stream()
+                .map(LaravelLog::getMessage).toList());
+    }
+
+    @Test
+    void leavesAHalfWrittenLastLineToTheTail() throws IOException {
+        watcher.stopWatching();
+        Files.writeString(log, "[2025-07-03 10:16:00] production.INFO: half", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        start();
+        assertEquals(20, watcher.getStats().getTotalCount());
+
+        Files.writeString(log, " written\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        read();
+        List<LaravelLog> logs = watcher.getStats().getLogs();
+        assertEquals(21, logs.size());
+        assertEquals("half written", logs.get(20).getMessage());
+    }
+
+    @Test
+    void replaysTheEntriesAfterTheOffset() throws IOException {
+        List<LaravelLog> seen = watcher.getStats().getLogs();
+        LaravelLog last = seen.get(seen.size() - 1);
+        append(20, 5);
+        read();
+
+        List<LaravelLog> missed = replay(last.getOffset(), Long.MAX_VALUE);
+        assertEquals(5, missed.size());
+        assertEquals("entry 20", missed.get(0).getMessage());
+        assertEquals("entry 24", missed.get(4).getMessage());
+        assertEquals(List.of(), replay(missed.get(4).getOffset(), Long.MAX_VALUE));
+    }
+
+    @Test
+    void fallsBackWhenTheOffsetIsGoneOrTooFarBehind() throws IOException {
+        LaravelLog first = watcher.getStats().getLogs().get(0);
+        assertNull(replay(first.getOffset(), 100));
+        // Not where an entry starts
+        assertNull(replay(first.getOffset() + 1, Long.MAX_VALUE));
+
+        long offset = watcher.getStats().getLogs().get(10).getOffset();
+        Files.writeString(log, "");
+        read();
+        append(0, 20);
+        read();
+        // An entry starts there again, but it was logged after the one the client saw
+        assertNull(replay(offset, Long.MAX_VALUE));
+    }
+
+    @Test
+    void staleOffsetsStayStaleAcrossRestarts() throws IOException {
+        watcher.stopWatching();
+        properties.setSidecarDir(sidecars.toString());
+        start();
+        long offset = watcher.getStats().getLogs().get(10).getOffset();
+        Files.writeString(log, "");
+        read();
+        append(0, 20);
+        read();
+        watcher.stopWatching();
+        start();
+        assertNull(replay(offset, Long.MAX_VALUE));
+
+        // Same while the watcher is down
+        offset = watcher.getStats().getLogs().get(10).getOffset();
+        watcher.stopWatching();
+        Files.writeString(log, "");
+        append(0, 15);
+        start();
+        assertNull(replay(offset, Long.MAX_VALUE));
+    }
+
+    private List<LaravelLog> replay(long offset, long maxBytes) {
+        List<List<LaravelLog>> result = new ArrayList<>();
+        watcher.withReplay(offset, maxBytes, result::add);
+        return result.get(0);
+    }
+
+    private void start() throws IOException {
+        watcher = new LaravelLogWatcher(site, properties, mock(LaravelWatchEngine.class),
+                new WatcherMetrics(new SimpleMeterRegistry()));
+        watcher.startWatching();
+    }
+
+    private void read() {
+        watcher.scheduleRead(ChangeSource.EVENT);
+        watcher.runScheduledRead();
+    }
+
+    private void append(int from, int count) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            lines.append("[2025-07-03 10:15:").append(String.format("%02d", i % 60)).append("] production.INFO: entry ")
+                    .append(i).append('\n');
+        }
+        Files.writeString(log, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
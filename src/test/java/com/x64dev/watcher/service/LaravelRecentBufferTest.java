@@ -0,0 +1,72 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LaravelRecentBufferTest {
+
+    @Test
+    void evictsOldestByCount() {
+        LaravelRecentBuffer buffer = new LaravelRecentBuffer(3, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(entry(i * 100, "m" + i));
+        }
+        assertEquals(List.of("m2", "m3", "m4"), messages(buffer.newest(10)));
+        assertEquals(List.of("m3", "m4"), messages(buffer.newest(2)));
+        assertEquals(2, buffer.evicted());
+    }
+
+    @Test
+    void evictsOldestByBytesButKeepsNewest() {
+        LaravelLog small = entry(0, "x");
+        long size = LaravelRecentBuffer.estimateBytes(small);
+        LaravelRecentBuffer buffer = new LaravelRecentBuffer(100, size * 2);
+        buffer.add(small);
+        buffer.add(entry(100, "y"));
+        buffer.add(entry(200, "z"));
+        assertEquals(List.of("y", "z"), messages(buffer.newest(10)));
+        assertEquals(size * 2, buffer.bytes());
+
+        buffer.add(entry(300, "a much longer message than the budget allows"));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void rangeOnlyWhenFullyBuffered() {
+        LaravelRecentBuffer buffer = new LaravelRecentBuffer(3, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(entry(i * 100, "m" + i));
+        }
+        assertEquals(List.of("m2", "m3"), messages(buffer.range(200, 400)));
+        assertNull(buffer.range(100, 300));
+    }
+
+    @Test
+    void findsAnEntryByOffsetAcrossTheWrap() {
+        LaravelRecentBuffer buffer = new LaravelRecentBuffer(4, Long.MAX_VALUE);
+        for (int i = 0; i < 7; i++) {
+            buffer.add(entry(i * 100, "m" + i));
+        }
+        assertEquals("m3", buffer.find(300).getMessage());
+        assertEquals("m6", buffer.find(600).getMessage());
+        assertNull(buffer.find(200));
+        assertNull(buffer.find(450));
+        assertNull(buffer.find(700));
+    }
+
+    private static LaravelLog entry(long offset, String message) {
+        LaravelLog entry = new LaravelLog();
+        entry.setOffset(offset);
+        entry.setMessage(message);
+        return entry;
+    }
+
+    private static List<String> messages(List<LaravelLog> entries) {
+        return entries.stream().map(LaravelLog::getMessage).toList();
+    }
+}
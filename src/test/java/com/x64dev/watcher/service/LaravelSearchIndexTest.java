@@ -0,0 +1,72 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogHeader;
+import com.x64dev.watcher.models.LaravelLogParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LaravelSearchIndexTest {
+
+    @Test
+    void termAndQueriesOverMessageAndContext() {
+        LaravelSearchIndex index = new LaravelSearchIndex();
+        index.add(0, entry("Payment succeeded", "{\"userId\":42}"));
+        index.add(1, entry("Payment failed: card declined", null));
+        index.add(2, entry("Card declined again, card expired", "{\"userId\":42}"));
+
+        assertArrayEquals(new int[]{0, 1}, index.search("payment"));
+        assertArrayEquals(new int[]{1, 2}, index.search("CARD Declined"));
+        assertArrayEquals(new int[]{0, 2}, index.search("userid 42"));
+        assertArrayEquals(new int[]{2}, index.search("declined 42"));
+        assertArrayEquals(new int[0], index.search("refund"));
+        assertArrayEquals(new int[0], index.search("  "));
+    }
+
+    @Test
+    void indexesContinuationLinesAsRead() {
+        LaravelSearchIndex index = new LaravelSearchIndex();
+        LaravelLog entry = LaravelLogHeader.parse("[2025-07-03 10:15:30] production.ERROR: Zahlung fehlgeschlagen");
+        LaravelLogParser.finalizeLogEntry(entry, "city: Zürich\n#0 /app/Payments.php(12): charge()\n");
+        index.add(0, entry);
+
+        assertArrayEquals(new int[]{0}, index.search("zahlung zürich"));
+        assertArrayEquals(new int[]{0}, index.search("payments php"));
+        assertArrayEquals(new int[0], index.search("zurich"));
+    }
+
+    @Test
+    void tokenizesOnAnythingButLettersAndDigits() {
+        assertEquals(List.of("app", "models", "ticket", "owner", "zürich"),
+                LaravelSearchIndex.tokenize("App\\Models\\Ticket::owner() Zürich"));
+    }
+
+    @Test
+    void searchPagesNewestFirstWithCursor() {
+        LaravelStatsAccumulator stats = new LaravelStatsAccumulator(10, 10, Long.MAX_VALUE, true);
+        for (int i = 0; i < 5; i++) {
+            LaravelLog entry = entry(i % 2 == 0 ? "even hit " + i : "odd " + i, null);
+            entry.setOffset(i * 100L);
+            stats.add(entry);
+        }
+
+        LaravelStatsAccumulator.SearchHits newest = stats.search("hit", null, 2);
+        assertEquals(3, newest.total());
+        assertEquals(List.of(200L, 400L), newest.hits().stream().map(LaravelStatsAccumulator.Hit::start).toList());
+
+        LaravelStatsAccumulator.SearchHits older = stats.search("hit", newest.cursor(), 2);
+        assertEquals(List.of(0L), older.hits().stream().map(LaravelStatsAccumulator.Hit::start).toList());
+        assertEquals(null, older.cursor());
+    }
+
+    private static LaravelLog entry(String message, String context) {
+        LaravelLog entry = new LaravelLog();
+        entry.setMessage(message);
+        entry.setContext(context);
+        return entry;
+    }
+}
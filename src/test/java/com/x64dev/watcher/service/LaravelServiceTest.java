@@ -0,0 +1,152 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.config.WatcherExecutors;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogPage;
+import com.x64dev.watcher.models.LaravelStateStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class LaravelServiceTest {
+
+    private final WatcherProperties properties = new WatcherProperties();
+    private final LaravelService service = new LaravelService();
+    private LaravelWatchEngine engine;
+    private String site;
+    private Path siteDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(System.getenv("SITES_BASE_URI") != null);
+        site = "service-" + UUID.randomUUID();
+        siteDir = Paths.get(System.getenv("SITES_BASE_URI"), site);
+        Files.createDirectories(siteDir);
+        properties.setOpenEntryGraceMs(0);
+        WatcherExecutors executors = new WatcherExecutors();
+        ReflectionTestUtils.setField(executors, "properties", properties);
+        engine = new LaravelWatchEngine();
+        ReflectionTestUtils.setField(engine, "properties", properties);
+        ReflectionTestUtils.setField(engine, "executors", executors);
+        ReflectionTestUtils.invokeMethod(engine, "start");
+        ReflectionTestUtils.setField(service, "properties", properties);
+        ReflectionTestUtils.setField(service, "watchEngine", engine);
+        ReflectionTestUtils.setField(service, "metrics", new WatcherMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (engine == null) {
+            return;
+        }
+        ReflectionTestUtils.invokeMethod(service, "stopWatchers");
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+        try (var files = Files.list(siteDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.deleteIfExists(siteDir);
+    }
+
+    @Test
+    void pagesAcrossTheBoundaryBetweenDailyFiles() throws IOException {
+        write(siteDir.resolve("laravel-2025-07-01.log"), 0, 3);
+        write(siteDir.resolve("laravel-2025-07-02.log"), 3, 3);
+        properties.setSnapshotSize(2);
+        // Only the newest entries stay buffered, older pages come from the files
+        properties.setBufferEntries(2);
+
+        LaravelStateStats stats = service.loadStats(site);
+        assertEquals(List.of("entry 4", "entry 5"), messages(stats.getLogs()));
+
+        LaravelLogPage page = service.loadPage(site, stats.getCursor(), 2);
+        assertEquals(List.of("entry 2", "entry 3"), messages(page.getLogs()));
+
+        page = service.loadPage(site, page.getCursor(), 2);
+        assertEquals(List.of("entry 0", "entry 1"), messages(page.getLogs()));
+        assertNull(page.getCursor());
+    }
+
+    @Test
+    void aStaleCursorReturnsAnEmptyPage() throws Exception {
+        Path log = siteDir.resolve("laravel.log");
+        write(log, 0, 5);
+        properties.setSnapshotSize(2);
+        String cursor = service.loadStats(site).getCursor();
+        assertNotNull(cursor);
+
+        // Truncated and rewritten, the old offsets point into different entries now
+        Files.writeString(log, "", StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+        write(log, 10, 3);
+        awaitMessages(List.of("entry 11", "entry 12"));
+
+        LaravelLogPage page = service.loadPage(site, cursor, 2);
+        assertTrue(page.getLogs().isEmpty());
+        assertNull(page.getCursor());
+
+        page = service.loadPage(site, "not-a-cursor", 2);
+        assertTrue(page.getLogs().isEmpty());
+        assertNull(page.getCursor());
+    }
+
+    @Test
+    void capsThePageAtTheMaximumSize() throws IOException {
+        write(siteDir.resolve("laravel.log"), 0, 10);
+        properties.setSnapshotSize(1);
+        properties.setMaxPageSize(3);
+        String cursor = service.loadStats(site).getCursor();
+
+        LaravelLogPage page = service.loadPage(site, cursor, 100);
+        assertEquals(List.of("entry 6", "entry 7", "entry 8"), messages(page.getLogs()));
+
+        // No limit falls back to the snapshot size
+        page = service.loadPage(site, page.getCursor(), null);
+        assertEquals(List.of("entry 5"), messages(page.getLogs()));
+    }
+
+    private void awaitMessages(List<String> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> seen = List.of();
+        while (System.currentTimeMillis() < deadline) {
+            seen = messages(service.loadStats(site).getLogs());
+            if (seen.equals(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(expected, seen);
+    }
+
+    private static List<String> messages(List<LaravelLog> logs) {
+        return logs.stream().map(LaravelLog::getMessage).toList();
+    }
+
+    private static void write(Path log, int from, int count) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            lines.append("[2025-07-03 10:15:").append(String.format("%02d", i % 60)).append("] production.INFO: entry ")
+                    .append(i).append('\n');
+        }
+        Files.writeString(log, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,189 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogHeader;
+import com.x64dev.watcher.models.LaravelLogParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LaravelSidecarIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopensWithTheRecordsOfAnAppendedFile() throws IOException {
+        Path log = dir.resolve("laravel.log");
+        Path sidecar = dir.resolve("index/laravel.log.idx");
+        write(log, 0, 5000);
+        long size = Files.size(log);
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            for (LaravelLog entry : LaravelLogParser.parseLogFile(log.toString())) {
+                index.add(entry, 0);
+            }
+            index.commit(size);
+        }
+        append(log, 5000, 10);
+
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            assertEquals(size, index.indexedSize());
+            List<LaravelLog> parsed = LaravelLogParser.parseLogFile(log.toString());
+            List<long[]> records = records(index);
+            assertEquals(5000, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(parsed.get(i).getOffset(), records.get(i)[0]);
+                assertEquals(LaravelLogHeader.severity(parsed.get(i).getLevel()), records.get(i)[2]);
+                assertEquals(parsed.get(i + 1).getOffset() - parsed.get(i).getOffset(), records.get(i)[3]);
+            }
+        }
+    }
+
+    @Test
+    void startsOverWhenTheFileWasRewrittenOrReplaced() throws IOException {
+        Path log = dir.resolve("laravel.log");
+        Path sidecar = dir.resolve("laravel.log.idx");
+        write(log, 0, 100);
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            LaravelLogParser.parseLogFile(log.toString()).forEach(entry -> add(index, entry));
+            index.commit(Files.size(log));
+        }
+
+        // Longer, but the last indexed entry is not where it was
+        write(log, 1, 150);
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            assertEquals(0, index.records());
+            LaravelLogParser.parseLogFile(log.toString()).forEach(entry -> add(index, entry));
+            index.commit(Files.size(log));
+        }
+
+        // Another file under the same name
+        Path replacement = dir.resolve("laravel.log.new");
+        write(replacement, 1, 200);
+        Files.move(replacement, log, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            assertEquals(0, index.records());
+            assertEquals(0, index.indexedSize());
+        }
+    }
+
+    @Test
+    void keepsTheRecordsOfAnArchive() throws IOException {
+        Path plain = dir.resolve("laravel-2025-07-03.log");
+        Path log = dir.resolve("laravel-2025-07-03.log.gz");
+        Path sidecar = dir.resolve("laravel-2025-07-03.log.gz.idx");
+        write(plain, 0, 2000);
+        long inflated = Files.size(plain);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(log))) {
+            Files.copy(plain, out);
+        }
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            LaravelLogParser.parseLogFile(log.toString()).forEach(entry -> add(index, entry));
+            index.commit(inflated);
+        }
+
+        // The indexed size counts inflated bytes, far more than the archive holds
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            assertEquals(2000, index.records());
+            assertEquals(inflated, index.indexedSize());
+        }
+    }
+
+    @Test
+    void remembersWhatWentStaleAcrossReopens() throws IOException {
+        Path log = dir.resolve("laravel.log");
+        Path sidecar = dir.resolve("laravel.log.idx");
+        write(log, 0, 100);
+        long size = Files.size(log);
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            LaravelLogParser.parseLogFile(log.toString()).forEach(entry -> add(index, entry));
+            index.commit(size);
+            assertEquals(0, index.staleBelow());
+        }
+
+        // Truncated while nobody watched
+        write(log, 0, 10);
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            assertEquals(0, index.records());
+            assertEquals(size, index.staleBelow());
+            index.reset(size + 5);
+        }
+        try (LaravelSidecarIndex index = LaravelSidecarIndex.open(sidecar, log)) {
+            assertEquals(size + 5, index.staleBelow());
+            index.reset(1);
+            assertEquals(size + 5, index.staleBelow());
+        }
+    }
+
+    @Test
+    void rebuiltSearchIndexGoesInFrontOfNewEntries() {
+        LaravelStatsAccumulator stats = new LaravelStatsAccumulator(10, 10, Long.MAX_VALUE, true);
+        stats.addIndexed(0, 4);
+        stats.addIndexed(100, 1);
+        LaravelStatsAccumulator.IndexRebuild rebuild = stats.startIndexRebuild();
+        stats.add(entry(200, "ERROR", "payment failed again"));
+
+        LaravelSearchIndex rebuilt = new LaravelSearchIndex();
+        rebuilt.add(0, entry(0, "ERROR", "payment failed"));
+        rebuilt.add(1, entry(100, "INFO", "payment ok"));
+        assertEquals(true, stats.finishIndexRebuild(rebuild, rebuilt));
+
+        assertEquals(2, stats.snapshot().getErrorsCount());
+        assertEquals(List.of(0L, 200L), stats.search("failed", null, 10).hits().stream()
+                .map(LaravelStatsAccumulator.Hit::start).toList());
+        assertArrayEquals(new long[]{0, 100, 200}, stats.search("payment", null, 10).hits().stream()
+                .mapToLong(LaravelStatsAccumulator.Hit::start).toArray());
+    }
+
+    private static void add(LaravelSidecarIndex index, LaravelLog entry) {
+        try {
+            index.add(entry, 0);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static List<long[]> records(LaravelSidecarIndex index) throws IOException {
+        List<long[]> records = new ArrayList<>();
+        index.forEach((offset, epochSecond, severity, length) -> records.add(new long[]{offset, epochSecond, severity, length}));
+        return records;
+    }
+
+    private static LaravelLog entry(long offset, String level, String message) {
+        LaravelLog entry = new LaravelLog();
+        entry.setOffset(offset);
+        entry.setLevel(level);
+        entry.setMessage(message);
+        return entry;
+    }
+
+    private static void write(Path log, int seed, int entries) throws IOException {
+        Files.deleteIfExists(log);
+        append(log, seed * 100000, entries);
+    }
+
+    private static void append(Path log, int from, int entries) throws IOException {
+        StringBuilder text = new StringBuilder();
+        String[] levels = {"INFO", "ERROR", "DEBUG", "WARNING"};
+        for (int i = from; i < from + entries; i++) {
+            text.append(String.format("[2025-07-03 %02d:%02d:%02d] production.%s: entry %d%n",
+                    (i / 3600) % 24, (i / 60) % 60, i % 60, levels[i % levels.length], i));
+            if (i % 7 == 0) {
+                text.append("[stacktrace]\n#0 {main}\n");
+            }
+        }
+        Files.writeString(log, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,145 @@
+package com.x64dev.watcher.service;
+
+import com.x64dev.watcher.config.WatcherExecutors;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.service.LaravelWatchEngine.ChangeSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class LaravelWatchEngineTest {
+
+    private final WatcherProperties properties = new WatcherProperties();
+    private LaravelWatchEngine engine;
+    private Path siteDir;
+    private LaravelLogWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(System.getenv("SITES_BASE_URI") != null);
+        String site = "engine-" + UUID.randomUUID();
+        siteDir = Paths.get(System.getenv("SITES_BASE_URI"), site);
+        Files.createDirectories(siteDir);
+        properties.setOpenEntryGraceMs(0);
+        properties.setFallbackPollIntervalMs(100);
+        WatcherExecutors executors = new WatcherExecutors();
+        ReflectionTestUtils.setField(executors, "properties", properties);
+        engine = new LaravelWatchEngine();
+        ReflectionTestUtils.setField(engine, "properties", properties);
+        ReflectionTestUtils.setField(engine, "executors", executors);
+        ReflectionTestUtils.invokeMethod(engine, "start");
+        watcher = new LaravelLogWatcher(site, properties, engine, new WatcherMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (engine == null) {
+            return;
+        }
+        watcher.stopWatching();
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+        try (var files = Files.list(siteDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.deleteIfExists(siteDir);
+    }
+
+    @Test
+    void readsEntriesAppendedToTheLog() throws Exception {
+        Path log = siteDir.resolve("laravel.log");
+        write(log, 0, 2);
+        watcher.startWatching();
+        write(log, 2, 3);
+        awaitMessages("entry 0", "entry 1", "entry 2", "entry 3", "entry 4");
+    }
+
+    @Test
+    void picksUpALogCreatedAfterStart() throws Exception {
+        watcher.startWatching();
+        write(siteDir.resolve("laravel.log"), 0, 3);
+        awaitMessages("entry 0", "entry 1", "entry 2");
+    }
+
+    @Test
+    void followsALogRenamedOverTheOldOne() throws Exception {
+        Path log = siteDir.resolve("laravel.log");
+        write(log, 0, 5);
+        watcher.startWatching();
+        // How logrotate's create mode or a deploy swaps the file
+        Path replacement = siteDir.resolve("laravel.log.new");
+        write(replacement, 10, 2);
+        Files.move(replacement, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        awaitMessages("entry 10", "entry 11");
+    }
+
+    @Test
+    void movesOnToTheNextDaysFile() throws Exception {
+        Path yesterday = siteDir.resolve("laravel-2025-07-01.log");
+        write(yesterday, 0, 2);
+        // Quiet for longer than the grace a day switch waits for
+        Files.setLastModifiedTime(yesterday, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        watcher.startWatching();
+        write(siteDir.resolve("laravel-2025-07-02.log"), 2, 1);
+        awaitMessages("entry 0", "entry 1", "entry 2");
+    }
+
+    @Test
+    void aRejectedReadDoesNotBlockLaterOnes() throws IOException {
+        watcher.startWatching();
+        // Like at shutdown, execute throws RejectedExecutionException
+        ((ExecutorService) ReflectionTestUtils.getField(engine, "tailExecutor")).shutdown();
+        ReflectionTestUtils.invokeMethod(engine, "dispatch", watcher, ChangeSource.EVENT);
+
+        // Left for the poller, and free to be queued again
+        assertTrue(watcher.needsPoll(System.currentTimeMillis(), Long.MAX_VALUE));
+        assertTrue(watcher.scheduleRead(ChangeSource.POLL));
+        assertFalse(watcher.scheduleRead(ChangeSource.POLL));
+    }
+
+    // Reads are driven by the engine's events, the fallback poll only kicks in after the idle time
+    private void awaitMessages(String... messages) throws InterruptedException {
+        List<String> expected = List.of(messages);
+        long deadline = System.currentTimeMillis() + 3000;
+        List<String> seen = List.of();
+        while (System.currentTimeMillis() < deadline) {
+            seen = watcher.getStats().getLogs().stream().map(LaravelLog::getMessage).toList();
+            if (seen.equals(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(expected, seen);
+    }
+
+    private static void write(Path log, int from, int count) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            lines.append("[2025-07-03 10:15:").append(String.format("%02d", i % 60)).append("] production.INFO: entry ")
+                    .append(i).append('\n');
+        }
+        Files.writeString(log, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,50 @@
+package com.x64dev.watcher.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class WatcherServiceTest {
+
+    private final WatcherService service = new WatcherService();
+    private Path siteDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(System.getenv("SITES_BASE_URI") != null);
+        siteDir = Paths.get(System.getenv("SITES_BASE_URI"), "site-" + UUID.randomUUID());
+        Files.createDirectories(siteDir);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (siteDir != null) {
+            Files.deleteIfExists(siteDir);
+        }
+    }
+
+    @Test
+    void onlyDirectoriesRightUnderTheBaseAreSites() {
+        String site = siteDir.getFileName().toString();
+        assertTrue(service.isSite(site));
+
+        assertFalse(service.isSite(null));
+        assertFalse(service.isSite(""));
+        assertFalse(service.isSite("no-such-site-" + UUID.randomUUID()));
+        assertFalse(service.isSite(".."));
+        assertFalse(service.isSite("."));
+        assertFalse(service.isSite("../" + Paths.get(System.getenv("SITES_BASE_URI")).getFileName()));
+        assertFalse(service.isSite(site + "/../" + site));
+        assertFalse(service.isSite(siteDir.toAbsolutePath().toString()));
+    }
+}
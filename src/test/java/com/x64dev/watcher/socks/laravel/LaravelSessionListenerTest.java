@@ -0,0 +1,106 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.config.WatcherProperties.DispatchMode;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class LaravelSessionListenerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final WatcherProperties properties = new WatcherProperties();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final LaravelSessionSender sender = mock(LaravelSessionSender.class);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void flushesAFullBatchRightAway() {
+        properties.setBatchSize(3);
+        // Far longer than the test, only the size can trigger the flush
+        properties.setBatchDelayMs(60_000);
+        LaravelSessionListener listener = listener();
+        LaravelLogPayload one = entry("one"), two = entry("two"), three = entry("three"), four = entry("four");
+
+        listener.onEntries(List.of(one, two));
+        verify(sender, never()).sendEntries(anyString(), any());
+
+        listener.onEntries(List.of(three, four));
+        var order = inOrder(sender);
+        order.verify(sender).sendEntries("multiple", List.of(one, two, three));
+        order.verify(sender).sendEntries("multiple", List.of(four));
+    }
+
+    @Test
+    void flushesAPartialBatchAfterTheDelay() {
+        properties.setBatchSize(100);
+        properties.setBatchDelayMs(50);
+        LaravelSessionListener listener = listener();
+        LaravelLogPayload one = entry("one"), two = entry("two");
+
+        listener.onEntries(List.of(one));
+        listener.onEntries(List.of(two));
+        verify(sender, never()).sendEntries(anyString(), any());
+        // Both arrivals share the flush the first one scheduled
+        verify(sender, timeout(1000)).sendEntries("multiple", List.of(one, two));
+
+        LaravelLogPayload three = entry("three");
+        listener.onEntries(List.of(three));
+        verify(sender, timeout(1000)).sendEntries("multiple", List.of(three));
+    }
+
+    @Test
+    void dropsTheBatchOnClose() {
+        properties.setBatchSize(100);
+        properties.setBatchDelayMs(50);
+        LaravelSessionListener listener = listener();
+
+        listener.onEntries(List.of(entry("one")));
+        listener.close();
+        listener.onEntries(List.of(entry("two")));
+        verify(sender, after(200).never()).sendEntries(anyString(), any());
+    }
+
+    @Test
+    void sendsEachEntryOnItsOwnForASingleSite() {
+        properties.getSiteDispatchModes().put("demo", DispatchMode.SINGLE);
+        LaravelSessionListener listener = listener();
+        LaravelLogPayload one = entry("one"), two = entry("two");
+
+        listener.onEntries(List.of(one, two));
+        var order = inOrder(sender);
+        order.verify(sender).sendEntries("single", List.of(one));
+        order.verify(sender).sendEntries("single", List.of(two));
+    }
+
+    private LaravelSessionListener listener() {
+        return new LaravelSessionListener("demo", new LaravelLogFilter(), properties, sender, scheduler);
+    }
+
+    private LaravelLogPayload entry(String message) {
+        LaravelLog entry = new LaravelLog();
+        entry.setLevel("INFO");
+        entry.setMessage(message);
+        return new LaravelLogPayload(entry, mapper);
+    }
+}
@@ -0,0 +1,198 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.x64dev.watcher.config.WatcherMetrics;
+import com.x64dev.watcher.config.WatcherProperties;
+import com.x64dev.watcher.config.WatcherProperties.OverflowPolicy;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LaravelSessionSenderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    // Tasks only run when the test says so, like a sender stuck on a slow client
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WatcherMetrics metrics = new WatcherMetrics(registry);
+
+    @Test
+    void gapPolicyDropsOldestAndReportsIt() throws Exception {
+        WebSocketSession session = session();
+        LaravelSessionSender sender = new LaravelSessionSender(session, mapper, tasks::add, 2, OverflowPolicy.GAP,
+                LaravelWireFormat.JSON, metrics);
+
+        sender.sendControl(Map.of("type", "stats"));
+        sender.sendEntries("single", List.of(entry("one")));
+        sender.sendEntries("single", List.of(entry("two")));
+        sender.sendEntries("single", List.of(entry("three")));
+        assertEquals(2, sender.getQueuedEntries());
+        assertEquals(2, registry.get("watcher.session.queued").tag("session", "s1").gauge().value());
+        assertEquals(1, registry.get("watcher.session.dropped").tag("session", "s1").counter().count());
+        runTasks();
+
+        List<String> sent = sent(session, 4);
+        assertEquals("stats", mapper.readTree(sent.get(0)).get("type").asText());
+        assertEquals("gap", mapper.readTree(sent.get(1)).get("type").asText());
+        assertEquals(1, mapper.readTree(sent.get(1)).get("dropped").asInt());
+        assertEquals("two", mapper.readTree(sent.get(2)).get("data").get("message").asText());
+        assertEquals("three", mapper.readTree(sent.get(3)).get("data").get("message").asText());
+        assertEquals(4, registry.get("watcher.session.send").tag("session", "s1").timer().count());
+
+        sender.close();
+        assertNull(registry.find("watcher.session.queued").gauge());
+        assertNull(registry.find("watcher.session.send").timer());
+    }
+
+    @Test
+    void disconnectPolicyClosesTheSession() throws Exception {
+        WebSocketSession session = session();
+        LaravelSessionSender sender = new LaravelSessionSender(session, mapper, tasks::add, 1, OverflowPolicy.DISCONNECT,
+                LaravelWireFormat.JSON, metrics);
+
+        sender.sendEntries("multiple", List.of(entry("one"), entry("two")));
+        runTasks();
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    void tracedEntriesCarryTheirStampsAndRecordLatencies() throws Exception {
+        WebSocketSession session = session();
+        LaravelSessionSender sender = new LaravelSessionSender(session, mapper, tasks::add, 10, OverflowPolicy.GAP,
+                LaravelWireFormat.JSON, metrics);
+        long now = LaravelReadTrace.nowMicros();
+        LaravelReadTrace trace = new LaravelReadTrace("demo", "poll", now - 3000, now - 2000, now - 1000);
+
+        sender.sendEntries("single", List.of(new LaravelLogPayload(entry("one").getEntry(), mapper, trace)));
+        runTasks();
+
+        var frame = mapper.readTree(sent(session, 1).get(0));
+        assertEquals("one", frame.get("data").get("message").asText());
+        assertEquals("poll", frame.get("trace").get("source").asText());
+        assertEquals(now - 2000, frame.get("trace").get("detected").asLong());
+        assertTrue(frame.get("trace").get("sent").asLong() >= now);
+        var total = registry.get("watcher.trace.latency").tag("site", "demo").tag("source", "poll")
+                .tag("stage", "total").timer();
+        assertEquals(1, total.count());
+        assertTrue(total.totalTime(java.util.concurrent.TimeUnit.MICROSECONDS) >= 3000);
+    }
+
+    @Test
+    void messagesNameTheNewestOffsetTheyBringTheClientUpTo() throws Exception {
+        LaravelOutlet outlet = mock(LaravelOutlet.class);
+        when(outlet.getId()).thenReturn("sse-1");
+        LaravelSessionSender sender = new LaravelSessionSender(outlet, mapper, tasks::add, 10, OverflowPolicy.GAP,
+                LaravelWireFormat.JSON, metrics);
+
+        sender.sendControl(Map.of("type", "replay"), 40);
+        sender.sendEntries("multiple", List.of(entry("one", 50), entry("two", 60)));
+        sender.sendControl(Map.of("type", "page"));
+        runTasks();
+
+        var order = inOrder(outlet);
+        order.verify(outlet).send(any(), eq(40L));
+        order.verify(outlet).send(any(), eq(60L));
+        order.verify(outlet).send(any(), eq(-1L));
+    }
+
+    @Test
+    void stalledHeartbeatDoesNotHoldUpOtherBatches() throws Exception {
+        // Shared like the handler's, which only ticks heartbeats and flushes batches
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService sendExecutor = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            LaravelOutlet stalled = mock(LaravelOutlet.class);
+            when(stalled.getId()).thenReturn("sse-1");
+            doAnswer(invocation -> {
+                release.await();
+                return null;
+            }).when(stalled).heartbeat();
+            LaravelSessionSender stalledSender = new LaravelSessionSender(stalled, mapper, sendExecutor, 10,
+                    OverflowPolicy.GAP, LaravelWireFormat.JSON, metrics);
+            scheduler.scheduleWithFixedDelay(stalledSender::sendHeartbeat, 0, 5, TimeUnit.MILLISECONDS);
+            verify(stalled, timeout(2000)).heartbeat();
+
+            WatcherProperties properties = new WatcherProperties();
+            properties.setBatchDelayMs(10);
+            WebSocketSession session = session();
+            LaravelSessionSender sender = new LaravelSessionSender(session, mapper, sendExecutor, 10,
+                    OverflowPolicy.GAP, LaravelWireFormat.JSON, metrics);
+            LaravelSessionListener listener = new LaravelSessionListener("demo", new LaravelLogFilter(), properties,
+                    sender, scheduler);
+            listener.onEntries(List.of(entry("one")));
+            verify(session, timeout(2000)).sendMessage(any());
+
+            // Nothing piles up behind the stuck write but the one heartbeat
+            verify(stalled).heartbeat();
+            release.countDown();
+            verify(stalled, timeout(2000).atLeast(2)).heartbeat();
+        } finally {
+            release.countDown();
+            scheduler.shutdownNow();
+            sendExecutor.shutdownNow();
+        }
+    }
+
+    private WebSocketSession session() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        return session;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    private List<String> sent(WebSocketSession session, int count) throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(count)).sendMessage(captor.capture());
+        return captor.getAllValues().stream().map(TextMessage::getPayload).toList();
+    }
+
+    private LaravelLogPayload entry(String message) {
+        return entry(message, 0);
+    }
+
+    private LaravelLogPayload entry(String message, long offset) {
+        LaravelLog entry = new LaravelLog();
+        entry.setLevel("INFO");
+        entry.setMessage(message);
+        entry.setOffset(offset);
+        return new LaravelLogPayload(entry, mapper);
+    }
+}
@@ -0,0 +1,78 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelLogFilter;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LaravelSiteFanoutTest {
+
+    @Test
+    void equalFiltersShareOneFilteredList() {
+        LaravelSiteFanout fanout = new LaravelSiteFanout(new ObjectMapper());
+        LaravelSessionListener first = listener(warningsUp());
+        LaravelSessionListener second = listener(warningsUp());
+        LaravelSessionListener everything = listener(new LaravelLogFilter());
+        fanout.add(first);
+        fanout.add(second);
+        fanout.add(everything);
+
+        fanout.onLogEntriesAdded(List.of(entry("INFO", "hello"), entry("ERROR", "boom")));
+
+        List<LaravelLogPayload> firstGot = received(first);
+        assertSame(firstGot, received(second));
+        assertEquals(1, firstGot.size());
+        assertEquals("boom", firstGot.get(0).getEntry().getMessage());
+        assertEquals(2, received(everything).size());
+        // The ERROR payload is the same object for both groups
+        assertSame(firstGot.get(0), received(everything).get(1));
+    }
+
+    @Test
+    void nothingSentWhenNothingMatches() {
+        LaravelSiteFanout fanout = new LaravelSiteFanout(new ObjectMapper());
+        LaravelSessionListener listener = listener(warningsUp());
+        fanout.add(listener);
+
+        fanout.onLogEntriesAdded(List.of(entry("DEBUG", "noise")));
+
+        verify(listener, never()).onEntries(any());
+    }
+
+    private static LaravelLogFilter warningsUp() {
+        LaravelLogFilter filter = new LaravelLogFilter();
+        filter.setMinLevel("warning");
+        return filter;
+    }
+
+    private static LaravelSessionListener listener(LaravelLogFilter filter) {
+        LaravelSessionListener listener = mock(LaravelSessionListener.class);
+        when(listener.getFilter()).thenReturn(filter);
+        return listener;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<LaravelLogPayload> received(LaravelSessionListener listener) {
+        ArgumentCaptor<List<LaravelLogPayload>> captor = ArgumentCaptor.forClass(List.class);
+        verify(listener).onEntries(captor.capture());
+        return captor.getValue();
+    }
+
+    private static LaravelLog entry(String level, String message) {
+        LaravelLog entry = new LaravelLog();
+        entry.setLevel(level);
+        entry.setMessage(message);
+        return entry;
+    }
+}
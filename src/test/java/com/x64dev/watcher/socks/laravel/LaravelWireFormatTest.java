@@ -0,0 +1,137 @@
+package com.x64dev.watcher.socks.laravel;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.x64dev.watcher.config.JacksonMapperConfig;
+import com.x64dev.watcher.models.LaravelLog;
+import com.x64dev.watcher.models.LaravelReadTrace;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LaravelWireFormatTest {
+
+    private final ObjectMapper mapper = new JacksonMapperConfig().objectMapper();
+
+    @Test
+    void everyFormatCarriesTheSameMessages() throws Exception {
+        List<LaravelLogPayload> entries = List.of(payload("one", null), payload("two", "{\"id\":\"ch_1\"}"),
+                payload("three", null));
+        LaravelReadTrace trace = new LaravelReadTrace("demo", "inotify", 1, 2, 3);
+        JsonNode single = text(LaravelWireFormat.JSON.update("single", entries.subList(0, 1), null, 0));
+        JsonNode multiple = text(LaravelWireFormat.JSON.update("multiple", entries, trace, 4));
+        JsonNode stats = text(LaravelWireFormat.JSON.message(Map.of("type", "stats", "total", 3), mapper));
+        assertEquals(3, multiple.get("data").size());
+        assertEquals(4, multiple.get("trace").get("sent").asLong());
+
+        for (LaravelWireEncoding encoding : LaravelWireEncoding.values()) {
+            for (boolean deflate : new boolean[]{false, true}) {
+                LaravelWireFormat format = new LaravelWireFormat(encoding, deflate);
+                if (format.isText()) {
+                    continue;
+                }
+                String name = format.toString();
+                assertEquals(single, decode(format, format.update("single", entries.subList(0, 1), null, 0)), name);
+                assertEquals(multiple, decode(format, format.update("multiple", entries, trace, 4)), name);
+                assertEquals(stats, decode(format, format.message(Map.of("type", "stats", "total", 3), mapper)), name);
+            }
+        }
+    }
+
+    @Test
+    void binaryEncodingsFollowTheApplicationsMapper() throws Exception {
+        ObjectMapper isoDates = new JacksonMapperConfig().objectMapper()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        LaravelLogPayload payload = payload("iso", null, isoDates);
+        JsonNode json = isoDates.readTree(payload.json());
+        assertEquals("2025-07-03T10:15:30", json.get("timestamp").asText());
+
+        for (LaravelWireEncoding encoding : List.of(LaravelWireEncoding.SMILE, LaravelWireEncoding.CBOR)) {
+            LaravelWireFormat format = new LaravelWireFormat(encoding, false);
+            JsonNode single = decode(format, format.update("single", List.of(payload), null, 0));
+            assertEquals(json, single.get("data"), encoding.name());
+            JsonNode message = decode(format, format.message(Map.of("at", LocalDateTime.of(2025, 7, 3, 10, 15, 30)), isoDates));
+            assertEquals("2025-07-03T10:15:30", message.get("at").asText(), encoding.name());
+        }
+    }
+
+    @Test
+    void entriesAreEncodedAndDeflatedOnce() throws Exception {
+        LaravelLogPayload payload = payload("cached", null);
+        assertSame(payload.encoded(LaravelWireEncoding.CBOR), payload.encoded(LaravelWireEncoding.CBOR));
+        assertSame(payload.deflated(LaravelWireEncoding.SMILE), payload.deflated(LaravelWireEncoding.SMILE));
+    }
+
+    @Test
+    void unknownEncodingIsRefused() {
+        assertEquals(LaravelWireFormat.JSON, LaravelWireFormat.of(Map.of()));
+        assertEquals(new LaravelWireFormat(LaravelWireEncoding.SMILE, true),
+                LaravelWireFormat.of(Map.of("encoding", "smile", "compress", "deflate")));
+        assertThrows(IllegalArgumentException.class, () -> LaravelWireFormat.of(Map.of("encoding", "xml")));
+        assertThrows(IllegalArgumentException.class, () -> LaravelWireFormat.of(Map.of("compress", "gzip")));
+    }
+
+    private JsonNode text(WebSocketMessage<?> message) throws Exception {
+        return mapper.readTree(assertInstanceOf(TextMessage.class, message).getPayload());
+    }
+
+    private static JsonNode decode(LaravelWireFormat format, WebSocketMessage<?> message) throws Exception {
+        ByteBuffer payload = assertInstanceOf(BinaryMessage.class, message).getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        if (format.deflate()) {
+            bytes = inflate(bytes);
+        }
+        ObjectMapper reader = switch (format.encoding()) {
+            case JSON -> new ObjectMapper();
+            case SMILE -> new ObjectMapper(new SmileFactory());
+            case CBOR -> new ObjectMapper(new CBORFactory());
+        };
+        return reader.readTree(bytes);
+    }
+
+    private static byte[] inflate(byte[] bytes) throws Exception {
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!inflater.finished()) {
+            int length = inflater.inflate(buffer);
+            assertTrue(length > 0 || !inflater.needsInput(), "stream ended early");
+            out.write(buffer, 0, length);
+        }
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    private LaravelLogPayload payload(String message, String context) {
+        return payload(message, context, mapper);
+    }
+
+    private static LaravelLogPayload payload(String message, String context, ObjectMapper mapper) {
+        LaravelLog entry = new LaravelLog();
+        entry.setTimestamp(LocalDateTime.of(2025, 7, 3, 10, 15, 30));
+        entry.setLevel("ERROR");
+        entry.setMessage(message);
+        entry.setContext(context);
+        entry.setOffset(42);
+        return new LaravelLogPayload(entry, mapper);
+    }
+}